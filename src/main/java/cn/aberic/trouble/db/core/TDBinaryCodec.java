@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.core;
+
+import com.alibaba.fastjson.JSON;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>紧凑的二进制编解码器
+ *
+ * <p>每一个编码结果都以1字节的类型标记开头，随后为该类型的数据：
+ * <ul>
+ * <li>{@code Integer}、{@code Long}、{@code Short}使用ZigZag变长整数编码；</li>
+ * <li>{@code Byte}、{@code Boolean}、{@code Character}、{@code Float}、{@code Double}使用定长编码；</li>
+ * <li>{@code String}使用变长整数长度前缀 + UTF-8字节；</li>
+ * <li>{@code byte[]}使用变长整数长度前缀 + 原始字节；</li>
+ * <li>其它类型使用变长整数长度前缀 + JSON文本的UTF-8字节，解码结果与{@link TDJsonCodec}一致。</li>
+ * </ul>
+ *
+ * <p>该编解码器不依赖反射，对基本类型、{@code String}及{@code byte[]}的编解码开销远小于JSON，编码结果也更短。
+ *
+ * @author agent on 2026/10/17 05:59
+ * @version 1.0
+ * @see TDCodec
+ * @since 1.0
+ */
+public class TDBinaryCodec implements TDCodec {
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte SHORT = 3;
+    private static final byte BYTE = 4;
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte CHAR = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte JSON_TEXT = 12;
+
+    @Override
+    public byte[] encode(Object value) {
+        if (null == value) {
+            return new byte[]{NULL};
+        }
+        if (value instanceof Integer) {
+            return varLong(INT, zigZag((Integer) value));
+        }
+        if (value instanceof Long) {
+            return varLong(LONG, zigZag((Long) value));
+        }
+        if (value instanceof Short) {
+            return varLong(SHORT, zigZag((Short) value));
+        }
+        if (value instanceof Byte) {
+            return new byte[]{BYTE, (Byte) value};
+        }
+        if (value instanceof Boolean) {
+            return new byte[]{(Boolean) value ? TRUE : FALSE};
+        }
+        if (value instanceof Float) {
+            return fixed(FLOAT, Float.floatToIntBits((Float) value), 4);
+        }
+        if (value instanceof Double) {
+            return fixed(DOUBLE, Double.doubleToLongBits((Double) value), 8);
+        }
+        if (value instanceof Character) {
+            return fixed(CHAR, (Character) value, 2);
+        }
+        if (value instanceof String) {
+            return lengthPrefixed(STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        if (value instanceof byte[]) {
+            return lengthPrefixed(BYTES, (byte[]) value);
+        }
+        return lengthPrefixed(JSON_TEXT, JSON.toJSONBytes(value));
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        switch (bytes[0]) {
+            case NULL:
+                return null;
+            case INT:
+                return (int) unZigZag(readVarLong(bytes, 1));
+            case LONG:
+                return unZigZag(readVarLong(bytes, 1));
+            case SHORT:
+                return (short) unZigZag(readVarLong(bytes, 1));
+            case BYTE:
+                return bytes[1];
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case FLOAT:
+                return Float.intBitsToFloat((int) readFixed(bytes, 4));
+            case DOUBLE:
+                return Double.longBitsToDouble(readFixed(bytes, 8));
+            case CHAR:
+                return (char) readFixed(bytes, 2);
+            case STRING:
+                return new String(bytes, payloadOffset(bytes), payloadLength(bytes), StandardCharsets.UTF_8);
+            case BYTES:
+                int offset = payloadOffset(bytes);
+                return Arrays.copyOfRange(bytes, offset, offset + payloadLength(bytes));
+            case JSON_TEXT:
+                return JSON.parse(new String(bytes, payloadOffset(bytes), payloadLength(bytes), StandardCharsets.UTF_8));
+            default:
+                throw new IllegalArgumentException("unknown binary codec tag " + bytes[0]);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarLong(byte[] bytes, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static long readVarLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[offset++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] varLong(byte tag, long value) {
+        byte[] bytes = new byte[1 + varLongSize(value)];
+        bytes[0] = tag;
+        writeVarLong(bytes, 1, value);
+        return bytes;
+    }
+
+    private static byte[] fixed(byte tag, long value, int length) {
+        byte[] bytes = new byte[1 + length];
+        bytes[0] = tag;
+        for (int i = length; i > 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static long readFixed(byte[] bytes, int length) {
+        long value = 0;
+        for (int i = 1; i <= length; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static byte[] lengthPrefixed(byte tag, byte[] payload) {
+        byte[] bytes = new byte[1 + varLongSize(payload.length) + payload.length];
+        bytes[0] = tag;
+        int offset = writeVarLong(bytes, 1, payload.length);
+        System.arraycopy(payload, 0, bytes, offset, payload.length);
+        return bytes;
+    }
+
+    private static int payloadLength(byte[] bytes) {
+        return (int) readVarLong(bytes, 1);
+    }
+
+    private static int payloadOffset(byte[] bytes) {
+        return 1 + varLongSize(payloadLength(bytes));
+    }
+
+}
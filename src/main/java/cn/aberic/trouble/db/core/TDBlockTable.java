@@ -26,6 +26,7 @@ package cn.aberic.trouble.db.core;
 
 import cn.aberic.trouble.db.block.TroubleBlock;
 import cn.aberic.trouble.db.util.HashBlockMap;
+import cn.aberic.trouble.db.util.Housekeeper;
 
 /**
  * @author Aberic on 2018/10/16 11:56
@@ -37,8 +38,12 @@ class TDBlockTable {
 
     private HashBlockMap<Object> map;
 
-    TDBlockTable(String name, TDConfig config) {
-        map = new HashBlockMap<>(name, config);
+    /**
+     * @param manager     所属实例，区块中的交易索引及写集写入该实例的磁盘表
+     * @param housekeeper 执行周期落盘的调度器
+     */
+    TDBlockTable(String name, TDConfig config, TDManager manager, Housekeeper housekeeper) {
+        map = new HashBlockMap<>(name, config, manager, housekeeper);
     }
 
     boolean containsKey(int hash, Object key) {
@@ -53,4 +58,12 @@ class TDBlockTable {
         return map.put(hash, key, block);
     }
 
+    void close() {
+        map.close();
+    }
+
+    TDCacheStats cacheStats() {
+        return map.cacheStats();
+    }
+
 }
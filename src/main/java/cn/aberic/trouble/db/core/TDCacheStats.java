@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.core;
+
+/**
+ * 磁盘表读缓存的统计快照。
+ *
+ * <p>快照在获取时生成，此后不再随缓存变化。命中率、淘汰数量等统计自表创建起累计，
+ * {@link #getWeightedSize()}为获取快照时缓存中所有值的估算内存占用，单位为字节。
+ *
+ * @author agent on 2026/10/17 06:11
+ * @version 1.0
+ * @see TDConfig#setCacheMaxWeight(long)
+ * @since 1.0
+ */
+public class TDCacheStats {
+
+    /** 缓存命中次数 */
+    private final long hitCount;
+    /** 缓存未命中次数 */
+    private final long missCount;
+    /** 被淘汰的值数量 */
+    private final long evictionCount;
+    /** 被淘汰的值的估算内存占用 */
+    private final long evictionWeight;
+    /** 当前缓存的值的估算内存占用 */
+    private final long weightedSize;
+    /** 缓存允许的最大估算内存占用 */
+    private final long maxWeight;
+
+    public TDCacheStats(long hitCount, long missCount, long evictionCount, long evictionWeight, long weightedSize,
+                        long maxWeight) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.evictionWeight = evictionWeight;
+        this.weightedSize = weightedSize;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * 缓存命中率，尚未有任何读取时为1.0
+     *
+     * @return 缓存命中率
+     */
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TDCacheStats{hitRate=%.4f, hitCount=%s, missCount=%s, evictionCount=%s, "
+                        + "evictionWeight=%s, weightedSize=%s, maxWeight=%s}", hitRate(), hitCount, missCount,
+                evictionCount, evictionWeight, weightedSize, maxWeight);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.core;
+
+/**
+ * <p>值编解码器
+ *
+ * <p>磁盘表在将值写入磁盘前通过{@link #encode(Object)}将其编码为字节，在从磁盘读取后通过{@link #decode(byte[])}还原。
+ * 编解码器可以通过{@link TDConfig#setCodec(TDCodec)}统一指定，也可以在创建表时通过携带{@link TDConfig}的方式为单表指定。
+ *
+ * <p>同一张表在其整个生命周期内必须使用同一个编解码器，否则已写入的值将无法被正确读取。
+ *
+ * <p>默认使用{@link TDJsonCodec}，与此前的磁盘文件格式保持一致；
+ * {@link TDBinaryCodec}则为基本类型、{@code String}及{@code byte[]}提供了紧凑的二进制编码。
+ *
+ * @author agent on 2026/10/17 05:59
+ * @version 1.0
+ * @see TDJsonCodec
+ * @see TDBinaryCodec
+ * @since 1.0
+ */
+public interface TDCodec {
+
+    /**
+     * 将值编码为字节
+     *
+     * @param value 值
+     *
+     * @return 编码后的字节，不能为{@code null}
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 将字节解码为值
+     *
+     * @param bytes 由{@link #encode(Object)}编码得到的字节
+     *
+     * @return 值
+     */
+    Object decode(byte[] bytes);
+
+}
@@ -25,6 +25,7 @@
 package cn.aberic.trouble.db.core;
 
 import cn.aberic.trouble.db.util.HashDiskMap;
+import cn.aberic.trouble.db.util.Housekeeper;
 
 /**
  * @author Aberic on 2018/10/17 15:19
@@ -32,24 +33,35 @@ import cn.aberic.trouble.db.util.HashDiskMap;
  * @see
  * @since 1.0
  */
-public class TDConcurrentDiskTable {
+public class TDConcurrentDiskTable extends TDTable {
 
     private HashDiskMap<Object, Object> map;
 
-    TDConcurrentDiskTable(String name, TDConfig config) {
-        map = new HashDiskMap<>(name, config, true);
+    TDConcurrentDiskTable(String name, TDConfig config, Housekeeper housekeeper) {
+        map = new HashDiskMap<>(name, config, true, housekeeper);
     }
 
+    @Override
     boolean containsKey(int hash, Object key) {
         return map.containsKey(hash, key);
     }
 
+    @Override
     Object get(int hash, Object key) {
         return map.get(hash, key);
     }
 
+    @Override
     Object put(int hash, Object key, Object value) {
         return map.put(hash, key, value);
     }
 
+    void close() {
+        map.close();
+    }
+
+    TDCacheStats cacheStats() {
+        return map.cacheStats();
+    }
+
 }
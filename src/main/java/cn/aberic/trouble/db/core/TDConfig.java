@@ -41,7 +41,66 @@ public class TDConfig {
     /** 默认区块文件后缀 */
     private final static String TDB_BLOCK_FILE_END = ".block";
     private final static String TDB_INDEX_NAME = "index";
+    private final static String TDB_BLOCK_NAME = "block";
+    /** 默认区块索引文件名称 */
+    private final static String TDB_BLOCK_INDEX_FILE = "block_index.idx";
+    /** 默认区块文件大小上限，超过后滚动生成新的区块文件 */
+    private final static long DEFAULT_BLOCK_FILE_MAX_SIZE = 128L * 1024 * 1024;
     private final static String TDB_INDEX_END = ".tdb";
+    private final static String TDB_LOG_NAME = "log";
+    /** 默认段文件前缀 */
+    private final static String TDB_LOG_FILE_START = "segment_";
+    /** 默认段文件后缀 */
+    private final static String TDB_LOG_FILE_END = ".log";
+    private final static String TDB_MAPPED_NAME = "mapped";
+    /** 默认映射文件前缀 */
+    private final static String TDB_MAPPED_FILE_START = "unit_";
+    /** 默认槽位文件后缀 */
+    private final static String TDB_MAPPED_SLOT_END = ".slot";
+    /** 默认值堆文件后缀 */
+    private final static String TDB_MAPPED_HEAP_END = ".heap";
+    private final static String TDB_WAL_NAME = "wal";
+    /** 默认预写日志文件名称 */
+    private final static String TDB_WAL_FILE = "wal.log";
+    private final static String TDB_LSM_NAME = "lsm";
+    /** 默认有序表文件前缀 */
+    private final static String TDB_LSM_TABLE_START = "sstable_";
+    /** 默认有序表文件后缀 */
+    private final static String TDB_LSM_TABLE_END = ".sst";
+    /** 默认内存表预写日志文件前缀 */
+    private final static String TDB_LSM_WAL_START = "memtable_";
+    /** 默认预写日志大小上限，超过后执行检查点并清空 */
+    private final static long DEFAULT_WAL_MAX_SIZE = 64L * 1024 * 1024;
+    /** 默认段文件大小上限，超过后滚动生成新的段文件 */
+    private final static long DEFAULT_SEGMENT_MAX_SIZE = 64L * 1024 * 1024;
+    /** 默认布隆过滤器每个unit的预期插入数量 */
+    private final static int DEFAULT_BLOOM_EXPECTED_INSERTIONS = 1 << 16;
+    /** 默认布隆过滤器误判率 */
+    private final static double DEFAULT_BLOOM_FPP = 0.01;
+    /** 默认磁盘表读缓存容量，即缓存值的估算内存占用上限 */
+    private final static long DEFAULT_CACHE_MAX_WEIGHT = 32L * 1024 * 1024;
+    /** 默认异步读写线程数 */
+    private final static int DEFAULT_IO_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    /** 默认堆外值存储区单块大小 */
+    private final static int DEFAULT_ARENA_SLAB_SIZE = 4 * 1024 * 1024;
+    /** 默认磁盘表索引文件句柄缓存的句柄数量上限 */
+    private final static int DEFAULT_MAX_OPEN_FILES = 1024;
+    /** 默认磁盘表空闲索引文件句柄的存活时间，单位为毫秒 */
+    private final static long DEFAULT_CHANNEL_IDLE_MILLIS = 60 * 1000L;
+    /** 默认{@link TDDurability#INTERVAL}策略的落盘间隔，单位为毫秒 */
+    private final static long DEFAULT_DURABILITY_INTERVAL_MILLIS = 1000L;
+    /** 默认{@link TDDurability#BATCH}策略每批次的写入数量 */
+    private final static int DEFAULT_DURABILITY_BATCH_SIZE = 64;
+    /** 默认LSM表内存表大小上限 */
+    private final static long DEFAULT_MEMTABLE_MAX_SIZE = 4L * 1024 * 1024;
+    /** 默认LSM表第0层有序表数量上限 */
+    private final static int DEFAULT_LSM_LEVEL0_MAX_FILES = 4;
+    /** 默认段文件压缩的失效记录占比阈值 */
+    private final static double DEFAULT_COMPACTION_GARBAGE_RATIO = 0.5;
+    /** 默认段文件压缩的读写速率上限，单位为字节每秒 */
+    private final static long DEFAULT_COMPACTION_RATE_LIMIT = 16L * 1024 * 1024;
+    /** 默认段文件压缩的检查间隔，单位为毫秒 */
+    private final static long DEFAULT_COMPACTION_INTERVAL_MILLIS = 10 * 1000L;
     /** 默认区块文件存储路径 测试/生产 */
     private final static String TROUBLE_DB_FILE_DIR = "/Users/Aberic/Documents/tmp/troubleDB/";
     // private final static String TROUBLE_DB_FILE_DIR = "/data/trouble/troubleDB/";
@@ -52,36 +111,320 @@ public class TDConfig {
     private int nodeArrayLength = 0;
     /** TDB数据库的默认存储目录 */
     private String dbPath;
+    /** 磁盘表存储模式 */
+    private TDStorageMode storageMode = TDStorageMode.INDEX;
+    /** {@link TDStorageMode#LOG}模式下单个段文件大小上限 */
+    private long segmentMaxSize = DEFAULT_SEGMENT_MAX_SIZE;
+    /** 并发磁盘表预写日志大小上限 */
+    private long walMaxSize = DEFAULT_WAL_MAX_SIZE;
+    /** 单个区块文件大小上限 */
+    private long blockFileMaxSize = DEFAULT_BLOCK_FILE_MAX_SIZE;
+    /** 磁盘表值编解码器 */
+    private TDCodec codec = TDJsonCodec.INSTANCE;
+    /** {@link TDStorageMode#INDEX}模式下布隆过滤器每个unit的预期插入数量 */
+    private int bloomExpectedInsertions = DEFAULT_BLOOM_EXPECTED_INSERTIONS;
+    /** {@link TDStorageMode#INDEX}模式下布隆过滤器误判率 */
+    private double bloomFpp = DEFAULT_BLOOM_FPP;
+    /** 磁盘表及区块表读缓存容量，单位为字节，为0时不启用读缓存 */
+    private long cacheMaxWeight = DEFAULT_CACHE_MAX_WEIGHT;
+    /** {@link TDManager}执行异步读写的线程数 */
+    private int ioThreads = DEFAULT_IO_THREADS;
+    /** 内存表是否将值序列化后存放于堆外 */
+    private boolean offHeap = false;
+    /** 堆外值存储区单块大小 */
+    private int arenaSlabSize = DEFAULT_ARENA_SLAB_SIZE;
+    /** {@link TDStorageMode#INDEX}模式下索引文件句柄缓存的句柄数量上限 */
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    /** {@link TDStorageMode#INDEX}模式下空闲索引文件句柄的存活时间，单位为毫秒 */
+    private long channelIdleMillis = DEFAULT_CHANNEL_IDLE_MILLIS;
+    /** 磁盘表、区块表及LSM表的落盘策略，为{@code null}时使用表类型的默认策略 */
+    private TDDurability durability;
+    /** {@link TDDurability#INTERVAL}策略的落盘间隔，单位为毫秒 */
+    private long durabilityIntervalMillis = DEFAULT_DURABILITY_INTERVAL_MILLIS;
+    /** {@link TDDurability#BATCH}策略每批次的写入数量 */
+    private int durabilityBatchSize = DEFAULT_DURABILITY_BATCH_SIZE;
+    /** LSM表内存表大小上限，超过后写为第0层有序表 */
+    private long memtableMaxSize = DEFAULT_MEMTABLE_MAX_SIZE;
+    /** LSM表第0层有序表数量上限，达到后合并至第1层 */
+    private int lsmLevel0MaxFiles = DEFAULT_LSM_LEVEL0_MAX_FILES;
+    /** {@link TDStorageMode#LOG}模式下段文件及{@link TDStorageMode#MAPPED}模式下值堆文件中失效记录占比达到该阈值后被压缩 */
+    private double compactionGarbageRatio = DEFAULT_COMPACTION_GARBAGE_RATIO;
+    /** {@link TDStorageMode#LOG}及{@link TDStorageMode#MAPPED}模式下压缩的读写速率上限，单位为字节每秒，不大于0时不限速，同一{@link TDManager}下所有表共用，以创建{@link TDManager}时的配置为准 */
+    private long compactionRateLimit = DEFAULT_COMPACTION_RATE_LIMIT;
+    /** {@link TDStorageMode#LOG}及{@link TDStorageMode#MAPPED}模式下压缩的检查间隔，单位为毫秒 */
+    private long compactionIntervalMillis = DEFAULT_COMPACTION_INTERVAL_MILLIS;
 
     /**
      * 存储Key-Value映射关系
      *
      * @param dbPath           TDB数据库的默认存储目录
+     * @param tableName        表名
      * @param unit             hash表的数组下标，此处即一级目录
      * @param level            B-Tree的层级，此处即二级目录 - m
      * @param rangeLevelDegree B-Tree结点范围对象在整层中的所在度，此处即三级目录 - v
-     * @param rangeDegree      B-Tree结点范围对象在上一级结点范围对象中所在度，此处即文件名称
+     * @param rangeDegree      B-Tree结点范围对象在上一级结点范围对象中所在度，此处即四级目录
+     * @param nodeDegree       结点在结点范围对象中的度，此处即文件名称
      *
      * @return 索引文件路径
+     *
+     * @deprecated 磁盘表已改为在索引文件根目录{@link #storageIndexDirPath(String, String)}下按目录驻留并拼接索引文件路径，
+     * 不再调用本方法，仅为兼容保留，路径规则与之保持一致
      */
+    @Deprecated
     public static final String storageIndexFilePath(String dbPath, String tableName, int unit, int level,
                                                     int rangeLevelDegree, int rangeDegree, int nodeDegree) {
+        return storageIndexDirPath(dbPath, tableName) + File.separator + unit + File.separator + level
+                + File.separator + rangeLevelDegree + File.separator + rangeDegree + File.separator + nodeDegree
+                + TDB_INDEX_END;
+    }
+
+    /**
+     * 索引文件所在的根目录，其下依次为 <tt>unit/level/rangeLevelDegree/rangeDegree/nodeDegree.tdb</tt>
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     *
+     * @return 索引文件根目录
+     */
+    public static final String storageIndexDirPath(String dbPath, String tableName) {
         if (StringUtils.isEmpty(dbPath)) {
             dbPath = TROUBLE_DB_FILE_DIR + "index/";
         }
-        return String.format("%s%s%s%s%s%s%s%s%s%s%s%s%s%s%s%s", dbPath, File.separator, tableName, File.separator,
-                TDB_INDEX_NAME, File.separator, unit, File.separator, level, File.separator, rangeLevelDegree,
-                File.separator, rangeDegree, File.separator, nodeDegree, TDB_INDEX_END);
+        return dbPath + File.separator + tableName + File.separator + TDB_INDEX_NAME;
     }
 
-    public static final String storageBlockFilePath(String dbPath, String tableName, int unit, int level,
-                                                    int rangeLevelDegree, int rangeDegree, int nodeDegree) {
+    /**
+     * 由索引文件名称解析出结点在结点范围对象中的度
+     *
+     * @param fileName 索引文件名称
+     *
+     * @return 结点度，如果不是索引文件则返回-1
+     */
+    public static final int storageIndexNodeDegree(String fileName) {
+        if (!fileName.endsWith(TDB_INDEX_END)) {
+            return -1;
+        }
+        String degree = fileName.substring(0, fileName.length() - TDB_INDEX_END.length());
+        return StringUtils.isNumeric(degree) ? Integer.parseInt(degree) : -1;
+    }
+
+    /**
+     * 区块表的区块文件路径，区块按高度顺序追加写入区块文件，单个区块文件写满后滚动生成下一个
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     * @param fileIndex 区块文件编号
+     *
+     * @return 区块文件路径
+     */
+    public static final String storageBlockFilePath(String dbPath, String tableName, int fileIndex) {
         if (StringUtils.isEmpty(dbPath)) {
             dbPath = TROUBLE_DB_FILE_DIR + "block/";
         }
-        return String.format("%s%s%s%s%s%s%s%s%s%s%s%s%s%s%s%s%s", dbPath, File.separator, tableName, File.separator,
-                TDB_INDEX_NAME, File.separator, unit, File.separator, level, File.separator, rangeLevelDegree,
-                File.separator, TDB_BLOCK_FILE_START, rangeDegree, File.separator, nodeDegree, TDB_BLOCK_FILE_END);
+        return String.format("%s%s%s%s%s%s%s%s%s", dbPath, File.separator, tableName, File.separator,
+                TDB_BLOCK_NAME, File.separator, TDB_BLOCK_FILE_START, fileIndex, TDB_BLOCK_FILE_END);
+    }
+
+    /**
+     * 区块表的区块索引文件路径，索引文件记录每一个区块高度所对应的区块文件、偏移及长度
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     *
+     * @return 区块索引文件路径
+     */
+    public static final String storageBlockIndexFilePath(String dbPath, String tableName) {
+        if (StringUtils.isEmpty(dbPath)) {
+            dbPath = TROUBLE_DB_FILE_DIR + "block/";
+        }
+        return String.format("%s%s%s%s%s%s%s", dbPath, File.separator, tableName, File.separator,
+                TDB_BLOCK_NAME, File.separator, TDB_BLOCK_INDEX_FILE);
+    }
+
+    /**
+     * {@link TDStorageMode#LOG}模式下的段文件存储目录
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     *
+     * @return 段文件存储目录
+     */
+    public static final String storageLogDirPath(String dbPath, String tableName) {
+        if (StringUtils.isEmpty(dbPath)) {
+            dbPath = TROUBLE_DB_FILE_DIR + "log/";
+        }
+        return String.format("%s%s%s%s%s", dbPath, File.separator, tableName, File.separator, TDB_LOG_NAME);
+    }
+
+    /**
+     * {@link TDStorageMode#LOG}模式下的段文件路径
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     * @param segmentId 段文件编号
+     *
+     * @return 段文件路径
+     */
+    public static final String storageLogFilePath(String dbPath, String tableName, int segmentId) {
+        return String.format("%s%s%s%s%s", storageLogDirPath(dbPath, tableName), File.separator,
+                TDB_LOG_FILE_START, segmentId, TDB_LOG_FILE_END);
+    }
+
+    /**
+     * 根据段文件名称解析段文件编号
+     *
+     * @param fileName 段文件名称
+     *
+     * @return 段文件编号，如果不是段文件则返回-1
+     */
+    public static final int storageLogSegmentId(String fileName) {
+        if (!fileName.startsWith(TDB_LOG_FILE_START) || !fileName.endsWith(TDB_LOG_FILE_END)) {
+            return -1;
+        }
+        String id = fileName.substring(TDB_LOG_FILE_START.length(), fileName.length() - TDB_LOG_FILE_END.length());
+        return StringUtils.isNumeric(id) ? Integer.parseInt(id) : -1;
+    }
+
+    /**
+     * LSM表的文件目录，其下存放内存表预写日志及各层有序表
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     *
+     * @return LSM表文件目录
+     */
+    public static final String storageLsmDirPath(String dbPath, String tableName) {
+        if (StringUtils.isEmpty(dbPath)) {
+            dbPath = TROUBLE_DB_FILE_DIR + "lsm/";
+        }
+        return dbPath + File.separator + tableName + File.separator + TDB_LSM_NAME;
+    }
+
+    /**
+     * LSM表的有序表文件路径
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     * @param level     有序表所在层
+     * @param id        有序表编号，编号越大的有序表越新
+     *
+     * @return 有序表文件路径
+     */
+    public static final String storageLsmTableFilePath(String dbPath, String tableName, int level, int id) {
+        return storageLsmDirPath(dbPath, tableName) + File.separator + TDB_LSM_TABLE_START + level + "_" + id
+                + TDB_LSM_TABLE_END;
+    }
+
+    /**
+     * 根据有序表文件名称解析有序表所在层及编号
+     *
+     * @param fileName 有序表文件名称
+     *
+     * @return <tt>{level, id}</tt> ，如果不是有序表文件则返回{@code null}
+     */
+    public static final int[] storageLsmTableLevelAndId(String fileName) {
+        if (!fileName.startsWith(TDB_LSM_TABLE_START) || !fileName.endsWith(TDB_LSM_TABLE_END)) {
+            return null;
+        }
+        String[] parts = fileName.substring(TDB_LSM_TABLE_START.length(),
+                fileName.length() - TDB_LSM_TABLE_END.length()).split("_");
+        if (parts.length != 2 || !StringUtils.isNumeric(parts[0]) || !StringUtils.isNumeric(parts[1])) {
+            return null;
+        }
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    /**
+     * LSM表的内存表预写日志路径，每一个内存表对应一个预写日志，内存表写为有序表后删除
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     * @param id        预写日志编号
+     *
+     * @return 预写日志路径
+     */
+    public static final String storageLsmWalFilePath(String dbPath, String tableName, int id) {
+        return storageLsmDirPath(dbPath, tableName) + File.separator + TDB_LSM_WAL_START + id + TDB_LOG_FILE_END;
+    }
+
+    /**
+     * 根据内存表预写日志名称解析预写日志编号
+     *
+     * @param fileName 预写日志名称
+     *
+     * @return 预写日志编号，如果不是内存表预写日志则返回-1
+     */
+    public static final int storageLsmWalId(String fileName) {
+        if (!fileName.startsWith(TDB_LSM_WAL_START) || !fileName.endsWith(TDB_LOG_FILE_END)) {
+            return -1;
+        }
+        String id = fileName.substring(TDB_LSM_WAL_START.length(), fileName.length() - TDB_LOG_FILE_END.length());
+        return StringUtils.isNumeric(id) ? Integer.parseInt(id) : -1;
+    }
+
+    /**
+     * {@link TDStorageMode#MAPPED}模式下的槽位文件路径
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     * @param unit      hash表的数组下标
+     *
+     * @return 槽位文件路径
+     */
+    public static final String storageMappedSlotFilePath(String dbPath, String tableName, int unit) {
+        return storageMappedFilePath(dbPath, tableName, unit, TDB_MAPPED_SLOT_END);
+    }
+
+    /**
+     * {@link TDStorageMode#MAPPED}模式下的值堆文件路径
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     * @param unit      hash表的数组下标
+     *
+     * @return 值堆文件路径
+     */
+    public static final String storageMappedHeapFilePath(String dbPath, String tableName, int unit) {
+        return storageMappedFilePath(dbPath, tableName, unit, TDB_MAPPED_HEAP_END);
+    }
+
+    /**
+     * {@link TDStorageMode#MAPPED}模式下指定代的值堆文件路径，压缩时值在两代值堆文件之间迁移
+     *
+     * @param dbPath     TDB数据库的默认存储目录
+     * @param tableName  表名
+     * @param unit       hash表的数组下标
+     * @param generation 值堆文件的代，0或1
+     *
+     * @return 值堆文件路径
+     */
+    public static final String storageMappedHeapFilePath(String dbPath, String tableName, int unit, int generation) {
+        return storageMappedFilePath(dbPath, tableName, unit,
+                generation == 0 ? TDB_MAPPED_HEAP_END : TDB_MAPPED_HEAP_END + generation);
+    }
+
+    private static String storageMappedFilePath(String dbPath, String tableName, int unit, String end) {
+        if (StringUtils.isEmpty(dbPath)) {
+            dbPath = TROUBLE_DB_FILE_DIR + "mapped/";
+        }
+        return String.format("%s%s%s%s%s%s%s%s%s", dbPath, File.separator, tableName, File.separator,
+                TDB_MAPPED_NAME, File.separator, TDB_MAPPED_FILE_START, unit, end);
+    }
+
+    /**
+     * 并发磁盘表的预写日志文件路径
+     *
+     * @param dbPath    TDB数据库的默认存储目录
+     * @param tableName 表名
+     *
+     * @return 预写日志文件路径
+     */
+    public static final String storageWalFilePath(String dbPath, String tableName) {
+        if (StringUtils.isEmpty(dbPath)) {
+            dbPath = TROUBLE_DB_FILE_DIR + "wal/";
+        }
+        return String.format("%s%s%s%s%s%s%s", dbPath, File.separator, tableName, File.separator,
+                TDB_WAL_NAME, File.separator, TDB_WAL_FILE);
     }
 
     public TDConfig setTree(int treeMaxLevel, int nodeArrayLength) {
@@ -90,11 +433,164 @@ public class TDConfig {
         return this;
     }
 
+    /**
+     * 以2的幂作为B-Tree的最大度，此时B-Tree寻址中对最大度各次幂的乘除与取模均以移位与掩码完成
+     *
+     * @param treeMaxLevel B-Tree的层 - n
+     * @param degreeShift  B-Tree的最大度为 <tt>1 &lt;&lt; degreeShift</tt> ，结点范围对象中的所属子结点数组大小为最大度减1
+     *
+     * @return 当前配置
+     */
+    public TDConfig setTreeDegreeShift(int treeMaxLevel, int degreeShift) {
+        if (degreeShift < 1 || degreeShift > 30) {
+            throw new IllegalArgumentException("degreeShift must be between 1 and 30, but was " + degreeShift);
+        }
+        return setTree(treeMaxLevel, (1 << degreeShift) - 1);
+    }
+
     public TDConfig setDBPath(String dbPath) {
         this.dbPath = dbPath;
         return this;
     }
 
+    public TDConfig setStorageMode(TDStorageMode storageMode) {
+        this.storageMode = storageMode;
+        return this;
+    }
+
+    public TDConfig setSegmentMaxSize(long segmentMaxSize) {
+        this.segmentMaxSize = segmentMaxSize;
+        return this;
+    }
+
+    public TDConfig setWalMaxSize(long walMaxSize) {
+        this.walMaxSize = walMaxSize;
+        return this;
+    }
+
+    public TDConfig setBlockFileMaxSize(long blockFileMaxSize) {
+        this.blockFileMaxSize = blockFileMaxSize;
+        return this;
+    }
+
+    public TDConfig setCodec(TDCodec codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    public TDConfig setBloomFilter(int bloomExpectedInsertions, double bloomFpp) {
+        this.bloomExpectedInsertions = bloomExpectedInsertions;
+        this.bloomFpp = bloomFpp;
+        return this;
+    }
+
+    public TDConfig setCacheMaxWeight(long cacheMaxWeight) {
+        this.cacheMaxWeight = cacheMaxWeight;
+        return this;
+    }
+
+    public TDConfig setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
+    /**
+     * 设置内存表是否将值序列化后存放于堆外
+     *
+     * <p>启用后取出的值必须与存入的值类型一致，因此编解码器必须通过{@link #setCodec(TDCodec)}设置为{@link TDBinaryCodec}，
+     * 否则创建内存表时抛出{@code IllegalArgumentException}；值只能是{@code null}、{@code String}、{@code byte[]}
+     * 或基本类型的包装类型，写入其它类型的值时抛出{@code IllegalArgumentException}。
+     *
+     * @param offHeap 是否启用堆外存储
+     *
+     * @return 当前配置
+     */
+    public TDConfig setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+        return this;
+    }
+
+    public TDConfig setArenaSlabSize(int arenaSlabSize) {
+        this.arenaSlabSize = arenaSlabSize;
+        return this;
+    }
+
+    public TDConfig setChannelCache(int maxOpenFiles, long channelIdleMillis) {
+        this.maxOpenFiles = maxOpenFiles;
+        this.channelIdleMillis = channelIdleMillis;
+        return this;
+    }
+
+    /**
+     * 设置LSM表的内存表大小上限及第0层有序表数量上限
+     *
+     * @param memtableMaxSize   内存表大小上限，单位为字节
+     * @param lsmLevel0MaxFiles 第0层有序表数量上限
+     *
+     * @return 当前配置
+     */
+    public TDConfig setLsm(long memtableMaxSize, int lsmLevel0MaxFiles) {
+        this.memtableMaxSize = memtableMaxSize;
+        this.lsmLevel0MaxFiles = lsmLevel0MaxFiles;
+        return this;
+    }
+
+    /**
+     * 设置{@link TDStorageMode#LOG}模式下后台压缩段文件及{@link TDStorageMode#MAPPED}模式下后台压缩值堆文件的策略
+     *
+     * @param compactionGarbageRatio   段文件或值堆文件中失效记录占比达到该阈值后被压缩
+     * @param compactionRateLimit      压缩的读写速率上限，单位为字节每秒，不大于0时不限速，同一{@link TDManager}下所有表共用
+     * @param compactionIntervalMillis 压缩的检查间隔，单位为毫秒
+     *
+     * @return 当前配置
+     */
+    public TDConfig setCompaction(double compactionGarbageRatio, long compactionRateLimit,
+                                  long compactionIntervalMillis) {
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        this.compactionRateLimit = compactionRateLimit;
+        this.compactionIntervalMillis = compactionIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 设置落盘策略，为{@code null}时恢复表类型的默认策略：
+     * 普通磁盘表默认为{@link TDDurability#NONE}，并发磁盘表、LSM表及区块表默认为{@link TDDurability#ALWAYS}
+     *
+     * @param durability 落盘策略
+     *
+     * @return 当前配置
+     */
+    public TDConfig setDurability(TDDurability durability) {
+        this.durability = durability;
+        return this;
+    }
+
+    /**
+     * 使用{@link TDDurability#INTERVAL}落盘策略
+     *
+     * @param durabilityIntervalMillis 落盘间隔，单位为毫秒
+     *
+     * @return 当前配置
+     */
+    public TDConfig setDurabilityInterval(long durabilityIntervalMillis) {
+        this.durability = TDDurability.INTERVAL;
+        this.durabilityIntervalMillis = durabilityIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 使用{@link TDDurability#BATCH}落盘策略
+     *
+     * @param durabilityBatchSize 每批次的写入数量
+     *
+     * @return 当前配置
+     */
+    public TDConfig setDurabilityBatch(int durabilityBatchSize) {
+        this.durability = TDDurability.BATCH;
+        this.durabilityBatchSize = durabilityBatchSize;
+        return this;
+    }
+
     public int getTreeMaxLevel() {
         return treeMaxLevel;
     }
@@ -107,4 +603,98 @@ public class TDConfig {
         return dbPath;
     }
 
+    public TDStorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public long getSegmentMaxSize() {
+        return segmentMaxSize;
+    }
+
+    public long getWalMaxSize() {
+        return walMaxSize;
+    }
+
+    public long getBlockFileMaxSize() {
+        return blockFileMaxSize;
+    }
+
+    public TDCodec getCodec() {
+        return codec;
+    }
+
+    public int getBloomExpectedInsertions() {
+        return bloomExpectedInsertions;
+    }
+
+    public double getBloomFpp() {
+        return bloomFpp;
+    }
+
+    public long getCacheMaxWeight() {
+        return cacheMaxWeight;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public int getArenaSlabSize() {
+        return arenaSlabSize;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    public long getChannelIdleMillis() {
+        return channelIdleMillis;
+    }
+
+    public long getMemtableMaxSize() {
+        return memtableMaxSize;
+    }
+
+    public int getLsmLevel0MaxFiles() {
+        return lsmLevel0MaxFiles;
+    }
+
+    public double getCompactionGarbageRatio() {
+        return compactionGarbageRatio;
+    }
+
+    public long getCompactionRateLimit() {
+        return compactionRateLimit;
+    }
+
+    public long getCompactionIntervalMillis() {
+        return compactionIntervalMillis;
+    }
+
+    public TDDurability getDurability() {
+        return durability;
+    }
+
+    /**
+     * 获取落盘策略，未设置时返回表类型的默认策略
+     *
+     * @param defaultDurability 表类型的默认策略
+     * @return 落盘策略
+     */
+    public TDDurability getDurability(TDDurability defaultDurability) {
+        return null == durability ? defaultDurability : durability;
+    }
+
+    public long getDurabilityIntervalMillis() {
+        return durabilityIntervalMillis;
+    }
+
+    public int getDurabilityBatchSize() {
+        return durabilityBatchSize;
+    }
+
 }
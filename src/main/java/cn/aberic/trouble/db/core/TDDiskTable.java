@@ -25,30 +25,42 @@
 package cn.aberic.trouble.db.core;
 
 import cn.aberic.trouble.db.util.HashDiskMap;
+import cn.aberic.trouble.db.util.Housekeeper;
 
 /**
  * @author Aberic on 2018/10/14 20:48
  * @see ClassLoader#defineClass(byte[], int, int)
  * @since 1.0
  */
-class TDDiskTable {
+class TDDiskTable extends TDTable {
 
     private HashDiskMap<Object, Object> map;
 
-    TDDiskTable(String name, TDConfig config) {
-        map = new HashDiskMap<>(name, config, false);
+    TDDiskTable(String name, TDConfig config, Housekeeper housekeeper) {
+        map = new HashDiskMap<>(name, config, false, housekeeper);
     }
 
+    @Override
     boolean containsKey(int hash, Object key) {
         return map.containsKey(hash, key);
     }
 
+    @Override
     Object get(int hash, Object key) {
         return map.get(hash, key);
     }
 
+    @Override
     Object put(int hash, Object key, Object value) {
         return map.put(hash, key, value);
     }
 
+    void close() {
+        map.close();
+    }
+
+    TDCacheStats cacheStats() {
+        return map.cacheStats();
+    }
+
 }
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.core;
+
+/**
+ * <p>磁盘表及区块表的落盘策略
+ *
+ * <p>{@link TDDurability#NONE}下写入只进入操作系统页缓存，何时落盘由操作系统决定，吞吐量最高，
+ * 适合可以重建的缓存类磁盘表，是普通磁盘表的默认策略；{@link TDDurability#INTERVAL}由后台调度器按{@link TDConfig#getDurabilityIntervalMillis()}
+ * 的间隔将期间的写入合并为一次落盘；{@link TDDurability#BATCH}在未落盘的写入累计达到
+ * {@link TDConfig#getDurabilityBatchSize()}时落盘一次；{@link TDDurability#ALWAYS}在每一次写入返回前落盘，
+ * 适合区块表等不允许丢失写入的场景。
+ *
+ * <p>并发磁盘表及LSM表的写入先追加到预写日志，因此落盘策略作用于预写日志：{@link TDDurability#ALWAYS}下
+ * 同一批次的写入合并为一次落盘，其它策略下预写日志仅在策略要求时落盘。
+ * 并发磁盘表、LSM表及区块表未设置落盘策略时默认为{@link TDDurability#ALWAYS}，
+ * 需显式设置{@link TDDurability#NONE}才会放弃预写日志的崩溃保护。
+ *
+ * @author agent on 2026/10/17 06:44
+ * @version 1.0
+ * @see TDConfig
+ * @since 1.0
+ */
+public enum TDDurability {
+
+    /** 不主动落盘 */
+    NONE,
+    /** 按固定间隔落盘 */
+    INTERVAL,
+    /** 每累计一定数量的写入落盘一次 */
+    BATCH,
+    /** 每一次写入均落盘 */
+    ALWAYS
+
+}
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.core;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * <p>以UTF-8编码的JSON文本作为值编码的编解码器，为磁盘表的默认编解码器。
+ *
+ * <p>值的类型信息不会被写入，解码得到的非基本类型值为{@code JSONObject}或{@code JSONArray}。
+ *
+ * @author agent on 2026/10/17 05:59
+ * @version 1.0
+ * @see TDCodec
+ * @since 1.0
+ */
+public class TDJsonCodec implements TDCodec {
+
+    static final TDJsonCodec INSTANCE = new TDJsonCodec();
+
+    @Override
+    public byte[] encode(Object value) {
+        return JSON.toJSONBytes(value);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        return JSON.parse(bytes);
+    }
+
+}
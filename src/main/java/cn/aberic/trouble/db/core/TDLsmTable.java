@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.core;
+
+import cn.aberic.trouble.db.util.HashLsmMap;
+import cn.aberic.trouble.db.util.Housekeeper;
+
+/**
+ * @author agent on 2026/10/17 06:49
+ * @version 1.0
+ * @see HashLsmMap
+ * @since 1.0
+ */
+class TDLsmTable extends TDTable {
+
+    private HashLsmMap<Object, Object> map;
+
+    TDLsmTable(String name, TDConfig config, Housekeeper housekeeper) {
+        map = new HashLsmMap<>(name, config, housekeeper);
+    }
+
+    @Override
+    boolean containsKey(int hash, Object key) {
+        return map.containsKey(hash, key);
+    }
+
+    @Override
+    Object get(int hash, Object key) {
+        return map.get(hash, key);
+    }
+
+    @Override
+    Object put(int hash, Object key, Object value) {
+        return map.put(hash, key, value);
+    }
+
+    void close() {
+        map.close();
+    }
+
+}
@@ -25,9 +25,14 @@
 package cn.aberic.trouble.db.core;
 
 import cn.aberic.trouble.db.block.TroubleBlock;
+import cn.aberic.trouble.db.util.Housekeeper;
 
-import java.util.HashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Aberic on 2018/10/12 14:38
@@ -36,36 +41,62 @@ import java.util.concurrent.locks.ReentrantLock;
  * @see TDMemoryTable
  * @see TDDiskTable
  * @see TDBlockTable
+ * @see TDLsmTable
  * @since 1.0
  */
 public class TDManager {
 
     private static volatile TDManager instance;
 
-    private HashMap<String, TDMemoryTable> tdmMap;
-    private HashMap<String, TDDiskTable> tddMap;
-    private HashMap<String, TDBlockTable> tdbMap;
-    private HashMap<String, TDConcurrentDiskTable> ctddMap;
+    private ConcurrentHashMap<String, TDMemoryTable> tdmMap;
+    private ConcurrentHashMap<String, TDConcurrentMemoryTable> ctdmMap;
+    private ConcurrentHashMap<String, TDIntMemoryTable> tdimMap;
+    private ConcurrentHashMap<String, TDLongMemoryTable> tdlmMap;
+    private ConcurrentHashMap<String, TDDiskTable> tddMap;
+    private ConcurrentHashMap<String, TDBlockTable> tdbMap;
+    private ConcurrentHashMap<String, TDConcurrentDiskTable> ctddMap;
+    private ConcurrentHashMap<String, TDLsmTable> tdlMap;
     private TDConfig config;
-    private ReentrantLock lock = new ReentrantLock();
+    /** 执行异步读写的线程池，首次异步调用时按{@link TDConfig#getIoThreads()}创建 */
+    private volatile ExecutorService ioExecutor;
+    /** 所有表共用的后台维护任务调度器 */
+    private Housekeeper housekeeper;
 
     public static TDManager obtain() {
         if (null == instance) {
             synchronized (TDManager.class) {
                 if (null == instance) {
-                    instance = new TDManager();
+                    instance = new TDManager(new TDConfig());
                 }
             }
         }
         return instance;
     }
 
-    private TDManager() {
-        this.config = new TDConfig();
-        this.tdmMap = new HashMap<>();
-        this.tddMap = new HashMap<>();
-        this.tdbMap = new HashMap<>();
-        this.ctddMap = new HashMap<>();
+    /**
+     * 创建一个独立的实例，与{@link #obtain()}获得的实例及其它独立实例互不影响。
+     *
+     * <p>每一个实例拥有各自的配置、表、读缓存、异步读写线程池及后台维护调度器，
+     * 以不同数据库路径创建多个实例即可在同一进程中将数据分布到不同磁盘上。实例不再使用时需调用{@link #close()}。
+     *
+     * @param config 实例配置
+     * @return 独立的实例
+     */
+    public static TDManager create(TDConfig config) {
+        return new TDManager(config);
+    }
+
+    private TDManager(TDConfig config) {
+        this.config = config;
+        this.tdmMap = new ConcurrentHashMap<>();
+        this.ctdmMap = new ConcurrentHashMap<>();
+        this.tdimMap = new ConcurrentHashMap<>();
+        this.tdlmMap = new ConcurrentHashMap<>();
+        this.tddMap = new ConcurrentHashMap<>();
+        this.tdbMap = new ConcurrentHashMap<>();
+        this.ctddMap = new ConcurrentHashMap<>();
+        this.tdlMap = new ConcurrentHashMap<>();
+        this.housekeeper = new Housekeeper("trouble-housekeeper", 2, config.getCompactionRateLimit());
     }
 
     public void config(TDConfig config) {
@@ -73,122 +104,403 @@ public class TDManager {
     }
 
     public void createMTable(String name) {
-        try {
-            lock.lock();
-            while (null == tdmMap.get(name)) {
-                tdmMap.put(name, new TDMemoryTable(name, config));
-            }
-        } finally {
-            lock.unlock();
-        }
+        createMTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建表，如果同名表已存在则忽略
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置
+     */
+    public void createMTable(String name, TDConfig config) {
+        tdmMap.computeIfAbsent(name, n -> new TDMemoryTable(n, config));
+    }
+
+    public void createCMTable(String name) {
+        createCMTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建线程安全的内存表，如果同名表已存在则忽略
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置，该表不使用堆外值存储区
+     */
+    public void createCMTable(String name, TDConfig config) {
+        ctdmMap.computeIfAbsent(name, n -> new TDConcurrentMemoryTable(n, config));
+    }
+
+    public void createIntMTable(String name) {
+        createIntMTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建以非负 <tt>int</tt> 为键、<tt>int</tt> 为值的内存表，如果同名表已存在则忽略
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置
+     */
+    public void createIntMTable(String name, TDConfig config) {
+        tdimMap.computeIfAbsent(name, n -> new TDIntMemoryTable(n, config));
+    }
+
+    public void createLongMTable(String name) {
+        createLongMTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建以非负 <tt>int</tt> 为键、<tt>long</tt> 为值的内存表，如果同名表已存在则忽略
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置
+     */
+    public void createLongMTable(String name, TDConfig config) {
+        tdlmMap.computeIfAbsent(name, n -> new TDLongMemoryTable(n, config));
     }
 
     public void createDTable(String name) {
-        try {
-            lock.lock();
-            while (null == tddMap.get(name)) {
-                tddMap.put(name, new TDDiskTable(name, config));
-            }
-        } finally {
-            lock.unlock();
-        }
+        createDTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建表，如果同名表已存在则忽略
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置
+     */
+    public void createDTable(String name, TDConfig config) {
+        tddMap.computeIfAbsent(name, n -> new TDDiskTable(n, config, housekeeper));
     }
 
     public void createCDTable(String name) {
-        try {
-            lock.lock();
-            while (null == ctddMap.get(name)) {
-                ctddMap.put(name, new TDConcurrentDiskTable(name, config));
-            }
-        } finally {
-            lock.unlock();
-        }
+        createCDTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建表，如果同名表已存在则忽略
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置
+     */
+    public void createCDTable(String name, TDConfig config) {
+        ctddMap.computeIfAbsent(name, n -> new TDConcurrentDiskTable(n, config, housekeeper));
     }
 
     public void createBTable(String name) {
-        try {
-            lock.lock();
-            while (null == tdbMap.get(name)) {
-                tdbMap.put(name, new TDBlockTable(name, config));
-            }
-        } finally {
-            lock.unlock();
-        }
+        createBTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建表，如果同名表已存在则忽略
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置
+     */
+    public void createBTable(String name, TDConfig config) {
+        tdbMap.computeIfAbsent(name, n -> new TDBlockTable(n, config, this, housekeeper));
+    }
+
+    public void createLTable(String name) {
+        createLTable(name, config);
+    }
+
+    /**
+     * 以指定配置创建LSM表，如果同名表已存在则忽略。LSM表的写入只有预写日志的顺序追加，适合写入频繁的场景
+     *
+     * @param name   表名
+     * @param config 仅作用于该表的配置
+     */
+    public void createLTable(String name, TDConfig config) {
+        tdlMap.computeIfAbsent(name, n -> new TDLsmTable(n, config, housekeeper));
     }
 
     public boolean containsMKey(String name, int key) {
         return tdmMap.get(name).containsKey(checkHashByKey(key), key);
     }
 
+    public boolean containsCMKey(String name, int key) {
+        return ctdmMap.get(name).containsKey(checkHashByKey(key), key);
+    }
+
+    public boolean containsIntKey(String name, int key) {
+        return tdimMap.get(name).containsKey(key);
+    }
+
+    public boolean containsLongKey(String name, int key) {
+        return tdlmMap.get(name).containsKey(key);
+    }
+
     public boolean containsDKey(String name, int key) {
-        if (null == tddMap.get(name)) {
-            createDTable(name);
-        }
-        return tddMap.get(name).containsKey(checkHashByKey(key), key);
+        return diskTable(name).containsKey(checkHashByKey(key), key);
     }
 
     public boolean containsCDKey(String name, int key) {
-        if (null == ctddMap.get(name)) {
-            createCDTable(name);
-        }
-        return ctddMap.get(name).containsKey(checkHashByKey(key), key);
+        return concurrentDiskTable(name).containsKey(checkHashByKey(key), key);
     }
 
     public boolean containsBKey(String name, int key) {
-        if (null == tdbMap.get(name)) {
-            createBTable(name);
-        }
-        return tdbMap.get(name).containsKey(checkHashByKey(key), key);
+        return blockTable(name).containsKey(checkHashByKey(key), key);
+    }
+
+    public boolean containsLKey(String name, int key) {
+        return lsmTable(name).containsKey(checkHashByKey(key), key);
     }
 
     public Object getM(String name, Object key) {
         return tdmMap.get(name).get(checkHashByKey(key), key);
     }
 
+    public Object getCM(String name, Object key) {
+        return ctdmMap.get(name).get(checkHashByKey(key), key);
+    }
+
+    /**
+     * 读取 <tt>int</tt> 值内存表中的值，键和值均不装箱
+     *
+     * @param name 表名
+     * @param key  非负键
+     * @return 值，不存在时返回0
+     */
+    public int getInt(String name, int key) {
+        return tdimMap.get(name).get(key);
+    }
+
+    /**
+     * 读取 <tt>long</tt> 值内存表中的值，键和值均不装箱
+     *
+     * @param name 表名
+     * @param key  非负键
+     * @return 值，不存在时返回0
+     */
+    public long getLong(String name, int key) {
+        return tdlmMap.get(name).get(key);
+    }
+
     public Object getD(String name, Object key) {
-        if (null == tddMap.get(name)) {
-            createDTable(name);
-        }
-        return tddMap.get(name).get(checkHashByKey(key), key);
+        return diskTable(name).get(checkHashByKey(key), key);
     }
 
     public Object getCD(String name, Object key) {
-        if (null == ctddMap.get(name)) {
-            createCDTable(name);
-        }
-        return ctddMap.get(name).get(checkHashByKey(key), key);
+        return concurrentDiskTable(name).get(checkHashByKey(key), key);
     }
 
     public Object getB(String name, Object key) {
-        if (null == tdbMap.get(name)) {
-            createBTable(name);
-        }
-        return tdbMap.get(name).get(checkHashByKey(key), key);
+        return blockTable(name).get(checkHashByKey(key), key);
+    }
+
+    public Object getL(String name, Object key) {
+        return lsmTable(name).get(checkHashByKey(key), key);
     }
 
     public Object putM(String name, Object key, Object value) {
         return tdmMap.get(name).put(checkHashByKey(key), key, value);
     }
 
+    public Object putCM(String name, Object key, Object value) {
+        return ctdmMap.get(name).put(checkHashByKey(key), key, value);
+    }
+
+    /**
+     * 线程安全的内存表中的数据数量
+     *
+     * @param name 表名
+     * @return 数据数量
+     */
+    public int sizeCM(String name) {
+        return ctdmMap.get(name).size();
+    }
+
+    /**
+     * 写入 <tt>int</tt> 值内存表，键和值均不装箱
+     *
+     * @param name  表名
+     * @param key   非负键
+     * @param value 值
+     * @return 原值，不存在时返回0
+     */
+    public int putInt(String name, int key, int value) {
+        return tdimMap.get(name).put(key, value);
+    }
+
+    /**
+     * 写入 <tt>long</tt> 值内存表，键和值均不装箱
+     *
+     * @param name  表名
+     * @param key   非负键
+     * @param value 值
+     * @return 原值，不存在时返回0
+     */
+    public long putLong(String name, int key, long value) {
+        return tdlmMap.get(name).put(key, value);
+    }
+
     public Object putD(String name, Object key, Object value) {
-        if (null == tddMap.get(name)) {
-            createDTable(name);
-        }
-        return tddMap.get(name).put(checkHashByKey(key), key, value);
+        return diskTable(name).put(checkHashByKey(key), key, value);
     }
 
     public Object putCD(String name, Object key, Object value) {
-        if (null == ctddMap.get(name)) {
-            createCDTable(name);
-        }
-        return ctddMap.get(name).put(checkHashByKey(key), key, value);
+        return concurrentDiskTable(name).put(checkHashByKey(key), key, value);
     }
 
     public Object putB(String name, Object key, TroubleBlock block) {
-        if (null == tdbMap.get(name)) {
-            createBTable(name);
+        return blockTable(name).put(checkHashByKey(key), key, block);
+    }
+
+    public Object putL(String name, Object key, Object value) {
+        return lsmTable(name).put(checkHashByKey(key), key, value);
+    }
+
+    /**
+     * 获取磁盘表读缓存的统计快照
+     *
+     * @param name 表名
+     * @return 统计快照，未启用读缓存时返回{@code null}
+     */
+    public TDCacheStats cacheStatsD(String name) {
+        return diskTable(name).cacheStats();
+    }
+
+    /**
+     * 获取并发磁盘表读缓存的统计快照
+     *
+     * @param name 表名
+     * @return 统计快照，未启用读缓存时返回{@code null}
+     */
+    public TDCacheStats cacheStatsCD(String name) {
+        return concurrentDiskTable(name).cacheStats();
+    }
+
+    /**
+     * 获取区块表读缓存的统计快照
+     *
+     * @param name 表名
+     * @return 统计快照，未启用读缓存时返回{@code null}
+     */
+    public TDCacheStats cacheStatsB(String name) {
+        return blockTable(name).cacheStats();
+    }
+
+    /**
+     * 关闭当前实例的所有磁盘表、LSM表及区块表并释放后台线程，关闭{@link #obtain()}获得的实例后再次调用将获得一个新的实例
+     */
+    public void close() {
+        synchronized (TDManager.class) {
+            if (null != ioExecutor) {
+                ioExecutor.shutdown();
+                try {
+                    ioExecutor.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            tddMap.values().forEach(TDDiskTable::close);
+            ctddMap.values().forEach(TDConcurrentDiskTable::close);
+            tdbMap.values().forEach(TDBlockTable::close);
+            tdlMap.values().forEach(TDLsmTable::close);
+            tdmMap.clear();
+            ctdmMap.clear();
+            tdimMap.clear();
+            tdlmMap.clear();
+            tddMap.clear();
+            ctddMap.clear();
+            tdbMap.clear();
+            tdlMap.clear();
+            housekeeper.close();
+            if (instance == this) {
+                instance = null;
+            }
         }
-        return tdbMap.get(name).put(checkHashByKey(key), key, block);
+    }
+
+    /**
+     * 获取执行异步读写的线程池，线程均为守护线程，不会阻止JVM退出
+     *
+     * @return 异步读写线程池
+     */
+    private ExecutorService ioExecutor() {
+        if (null == ioExecutor) {
+            synchronized (this) {
+                if (null == ioExecutor) {
+                    AtomicInteger index = new AtomicInteger();
+                    ioExecutor = Executors.newFixedThreadPool(config.getIoThreads(), runnable -> {
+                        Thread thread = new Thread(runnable, String.format("trouble-io-%s", index.incrementAndGet()));
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return ioExecutor;
+    }
+
+    /**
+     * 在异步读写线程池中执行{@link #getD(String, Object)}，调用方线程不会阻塞于磁盘读取
+     *
+     * @param name 表名
+     * @param key  key
+     * @return 完成时为读取到的值
+     */
+    public CompletableFuture<Object> getDAsync(String name, Object key) {
+        return CompletableFuture.supplyAsync(() -> getD(name, key), ioExecutor());
+    }
+
+    /**
+     * 在异步读写线程池中执行{@link #putD(String, Object, Object)}，调用方线程不会阻塞于磁盘写入
+     *
+     * @param name  表名
+     * @param key   key
+     * @param value value
+     * @return 完成时为写入的值，写入失败时为{@code null}
+     */
+    public CompletableFuture<Object> putDAsync(String name, Object key, Object value) {
+        return CompletableFuture.supplyAsync(() -> putD(name, key, value), ioExecutor());
+    }
+
+    /**
+     * 在异步读写线程池中执行{@link #getCD(String, Object)}，调用方线程不会阻塞于磁盘读取
+     *
+     * @param name 表名
+     * @param key  key
+     * @return 完成时为读取到的值
+     */
+    public CompletableFuture<Object> getCDAsync(String name, Object key) {
+        return CompletableFuture.supplyAsync(() -> getCD(name, key), ioExecutor());
+    }
+
+    /**
+     * 在异步读写线程池中执行{@link #putCD(String, Object, Object)}，调用方线程不会阻塞于预写日志的组提交
+     *
+     * @param name  表名
+     * @param key   key
+     * @param value value
+     * @return 完成时为写入的值，写入失败时为{@code null}
+     */
+    public CompletableFuture<Object> putCDAsync(String name, Object key, Object value) {
+        return CompletableFuture.supplyAsync(() -> putCD(name, key, value), ioExecutor());
+    }
+
+    /**
+     * 在异步读写线程池中执行{@link #getB(String, Object)}，调用方线程不会阻塞于区块文件读取
+     *
+     * @param name 表名
+     * @param key  key
+     * @return 完成时为读取到的区块
+     */
+    public CompletableFuture<Object> getBAsync(String name, Object key) {
+        return CompletableFuture.supplyAsync(() -> getB(name, key), ioExecutor());
+    }
+
+    /**
+     * 在异步读写线程池中执行{@link #putB(String, Object, TroubleBlock)}，调用方线程不会阻塞于区块文件写入
+     *
+     * @param name  表名
+     * @param key   key
+     * @param block 区块
+     * @return 完成时为写入的区块，写入失败时为{@code null}
+     */
+    public CompletableFuture<Object> putBAsync(String name, Object key, TroubleBlock block) {
+        return CompletableFuture.supplyAsync(() -> putB(name, key, block), ioExecutor());
     }
 
     private static final int hash(Object key) {
@@ -196,6 +508,87 @@ public class TDManager {
         return (h = key.hashCode()) ^ (h >>> 16);
     }
 
+    /**
+     * 获取内存表的句柄，句柄直接持有表对象，通过句柄读写无需再按表名查找
+     *
+     * @param name 表名
+     * @return 表句柄
+     * @throws IllegalArgumentException 如果表不存在
+     */
+    public TDTableHandle openM(String name) {
+        return new TDTableHandle(this, name, existing(tdmMap, name));
+    }
+
+    /**
+     * 获取线程安全的内存表的句柄，句柄直接持有表对象，通过句柄读写无需再按表名查找
+     *
+     * @param name 表名
+     * @return 表句柄
+     * @throws IllegalArgumentException 如果表不存在
+     */
+    public TDTableHandle openCM(String name) {
+        return new TDTableHandle(this, name, existing(ctdmMap, name));
+    }
+
+    /**
+     * 获取磁盘表的句柄，表不存在时以默认配置创建，句柄直接持有表对象，通过句柄读写无需再按表名查找
+     *
+     * @param name 表名
+     * @return 表句柄
+     */
+    public TDTableHandle openD(String name) {
+        return new TDTableHandle(this, name, diskTable(name));
+    }
+
+    /**
+     * 获取并发磁盘表的句柄，表不存在时以默认配置创建，句柄直接持有表对象，通过句柄读写无需再按表名查找
+     *
+     * @param name 表名
+     * @return 表句柄
+     */
+    public TDTableHandle openCD(String name) {
+        return new TDTableHandle(this, name, concurrentDiskTable(name));
+    }
+
+    /**
+     * 获取LSM表的句柄，表不存在时以默认配置创建，句柄直接持有表对象，通过句柄读写无需再按表名查找
+     *
+     * @param name 表名
+     * @return 表句柄
+     */
+    public TDTableHandle openL(String name) {
+        return new TDTableHandle(this, name, lsmTable(name));
+    }
+
+    private static <T extends TDTable> T existing(ConcurrentHashMap<String, T> map, String name) {
+        T table = map.get(name);
+        if (null == table) {
+            throw new IllegalArgumentException(String.format("table %s does not exist", name));
+        }
+        return table;
+    }
+
+    private TDDiskTable diskTable(String name) {
+        TDDiskTable table = tddMap.get(name);
+        return null != table ? table : tddMap.computeIfAbsent(name, n -> new TDDiskTable(n, config, housekeeper));
+    }
+
+    private TDConcurrentDiskTable concurrentDiskTable(String name) {
+        TDConcurrentDiskTable table = ctddMap.get(name);
+        return null != table ? table
+                : ctddMap.computeIfAbsent(name, n -> new TDConcurrentDiskTable(n, config, housekeeper));
+    }
+
+    private TDLsmTable lsmTable(String name) {
+        TDLsmTable table = tdlMap.get(name);
+        return null != table ? table : tdlMap.computeIfAbsent(name, n -> new TDLsmTable(n, config, housekeeper));
+    }
+
+    private TDBlockTable blockTable(String name) {
+        TDBlockTable table = tdbMap.get(name);
+        return null != table ? table : tdbMap.computeIfAbsent(name, n -> new TDBlockTable(n, config, this, housekeeper));
+    }
+
     /**
      * 检查传入的 <tt>key</tt> 是否为{@code Integer}类型，如果是，则直接返回强转后的值。
      * 如果不是，则计算该 <tt>key</tt> 的 <tt>hash</tt> 值
@@ -203,7 +596,7 @@ public class TDManager {
      * @param key key
      * @return <tt>key</tt> 对应的 <tt>hash</tt> 值
      */
-    private int checkHashByKey(Object key) {
+    int checkHashByKey(Object key) {
         int hash;
         if (key instanceof Integer) {
             if ((Integer) key == 0) {
@@ -32,7 +32,7 @@ import cn.aberic.trouble.db.util.HashMemoryMap;
  * @see
  * @since 1.0
  */
-public class TDMemoryTable {
+public class TDMemoryTable extends TDTable {
 
     private HashMemoryMap<Object, Object> map;
 
@@ -40,14 +40,17 @@ public class TDMemoryTable {
         map = new HashMemoryMap<>(config);
     }
 
+    @Override
     boolean containsKey(int hash, Object key) {
         return map.containsKey(hash, key);
     }
 
+    @Override
     Object get(int hash, Object key) {
         return map.get(hash, key);
     }
 
+    @Override
     Object put(int hash, Object key, Object value) {
         return map.put(hash, key, value);
     }
@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.core;
+
+/**
+ * <p>磁盘表存储模式
+ *
+ * <p>{@link TDStorageMode#INDEX}为默认模式，每一个值都根据其在B-Tree中的位置独立存储为一个索引文件；
+ * {@link TDStorageMode#LOG}模式下所有值都顺序追加写入滚动的段文件中，并在内存中维护一份键目录，
+ * 每一次写入都仅是一次顺序追加，适合写入频繁的场景；
+ * {@link TDStorageMode#MAPPED}模式下每一个unit对应一个内存映射的定长槽位文件，
+ * 值在B-Tree中的位置被直接换算为槽位偏移，读取和判断存在仅是一次指针解引用。
+ *
+ * @author agent on 2026/10/17 05:57
+ * @version 1.0
+ * @see TDConfig
+ * @since 1.0
+ */
+public enum TDStorageMode {
+
+    /** 每个值独立存储为一个索引文件 */
+    INDEX,
+    /** 值顺序追加写入滚动段文件，内存中维护键目录 */
+    LOG,
+    /** 每个unit对应一个内存映射的定长槽位文件，槽位指向值堆文件 */
+    MAPPED
+
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.core;
+
+/**
+ * 表句柄。
+ *
+ * <p>句柄在打开时即持有表对象，此后的读写直接作用于该表，不再按表名查找，适合在循环中反复读写同一张表。
+ * 句柄的线程安全性与其持有的表一致，在{@link TDManager#close()}之后不应继续使用。
+ *
+ * @author agent on 2026/10/17 06:35
+ * @version 1.0
+ * @see TDManager#openD(String)
+ * @since 1.0
+ */
+public final class TDTableHandle {
+
+    private final TDManager manager;
+    private final String name;
+    private final TDTable table;
+
+    TDTableHandle(TDManager manager, String name, TDTable table) {
+        this.manager = manager;
+        this.name = name;
+        this.table = table;
+    }
+
+    /**
+     * 表名
+     *
+     * @return 表名
+     */
+    public String name() {
+        return name;
+    }
+
+    public boolean containsKey(Object key) {
+        return table.containsKey(manager.checkHashByKey(key), key);
+    }
+
+    public Object get(Object key) {
+        return table.get(manager.checkHashByKey(key), key);
+    }
+
+    public Object put(Object key, Object value) {
+        return table.put(manager.checkHashByKey(key), key, value);
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+import com.google.common.io.Files;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 区块文件存储。
+ *
+ * <p>区块按高度顺序追加写入有大小上限的区块文件{@code block_file_N.block}中，单个区块文件写满后滚动生成下一个，
+ * 因此按高度顺序读取区块即为顺序读取区块文件。
+ *
+ * <p>每写入一个区块，都会在区块索引文件中追加一条定长索引记录：
+ * <pre>
+ * | height(4) | fileIndex(4) | offset(8) | length(4) |
+ * </pre>
+ * 打开时顺序读取索引文件重建内存索引，内存索引以首个区块高度为基准，按高度连续存放区块所在位置及长度。
+ *
+ * @author agent on 2026/10/17 06:08
+ * @version 1.0
+ * @see TreeBlockMap
+ * @since 1.0
+ */
+class BlockStorage implements Closeable {
+
+    /** 索引记录长度 */
+    private static final int INDEX_RECORD_LENGTH = 20;
+    /** 区块位置中偏移所占位数 */
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    /** 内存索引默认容量 */
+    private static final int DEFAULT_INDEX_CAPACITY = 1024;
+
+    private final TDConfig config;
+    private final String name;
+    /** 已打开的区块文件 */
+    private final ConcurrentHashMap<Integer, FileChannel> files = new ConcurrentHashMap<>();
+    private final FileChannel indexChannel;
+    /** 当前追加写入的区块文件编号 */
+    private int activeIndex;
+    /** 当前追加写入的区块文件大小 */
+    private long activeSize;
+
+    /** 内存索引基准高度，即首个区块的高度 */
+    private int baseHeight;
+    /** 内存索引中区块的数量 */
+    private int count;
+    /** 区块位置，高24位为区块文件编号，低40位为区块在文件中的偏移 */
+    private long[] locations = new long[DEFAULT_INDEX_CAPACITY];
+    /** 区块长度，为0表示该高度的区块不存在 */
+    private int[] lengths = new int[DEFAULT_INDEX_CAPACITY];
+
+    BlockStorage(String name, TDConfig config) throws IOException {
+        this.name = name;
+        this.config = config;
+        File indexFile = new File(TDConfig.storageBlockIndexFilePath(config.getDbPath(), name));
+        Files.createParentDirs(indexFile);
+        indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        load();
+    }
+
+    /**
+     * 顺序读取索引文件重建内存索引，忽略末尾不完整、指向不存在数据或高度不连续的索引记录
+     *
+     * @throws IOException 索引文件读取失败
+     */
+    private void load() throws IOException {
+        long indexSize = indexChannel.size() - indexChannel.size() % INDEX_RECORD_LENGTH;
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+        long position = 0;
+        for (; position < indexSize; position += INDEX_RECORD_LENGTH) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                indexChannel.read(buffer, position + buffer.position());
+            }
+            int height = buffer.getInt(0);
+            int fileIndex = buffer.getInt(4);
+            long offset = buffer.getLong(8);
+            int length = buffer.getInt(16);
+            if (offset + length > file(fileIndex).size() || !continuous(height)) {
+                break;
+            }
+            index(height, fileIndex, offset, length);
+            activeIndex = Math.max(activeIndex, fileIndex);
+        }
+        indexChannel.truncate(position);
+        activeSize = file(activeIndex).size();
+    }
+
+    private FileChannel file(int fileIndex) {
+        return files.computeIfAbsent(fileIndex, i -> {
+            try {
+                File file = new File(TDConfig.storageBlockFilePath(config.getDbPath(), name, i));
+                Files.createParentDirs(file);
+                return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * 区块高度是否在已有高度范围内或紧随最高区块之后，尚无区块时任意高度均可作为基准高度
+     *
+     * @param height 区块高度
+     * @return 可写入时返回<tt>true</tt>
+     */
+    private boolean continuous(int height) {
+        int i = height - baseHeight;
+        return count == 0 || (i >= 0 && i <= count);
+    }
+
+    /**
+     * 检查区块高度是否可写入，应在写入任何数据前调用
+     *
+     * @param height 区块高度
+     * @throws IllegalArgumentException 区块高度不连续
+     */
+    synchronized void checkHeight(int height) {
+        if (!continuous(height)) {
+            throw new IllegalArgumentException(String.format("block height %s is not continuous, expected %s",
+                    height, baseHeight + count));
+        }
+    }
+
+    /**
+     * 将区块位置写入内存索引，调用方需已通过{@link #continuous(int)}检查区块高度
+     */
+    private void index(int height, int fileIndex, long offset, int length) {
+        if (count == 0) {
+            baseHeight = height;
+        }
+        int i = height - baseHeight;
+        if (i == locations.length) {
+            locations = Arrays.copyOf(locations, locations.length << 1);
+            lengths = Arrays.copyOf(lengths, lengths.length << 1);
+        }
+        locations[i] = ((long) fileIndex << OFFSET_BITS) | offset;
+        lengths[i] = length;
+        if (i == count) {
+            count++;
+        }
+    }
+
+    /**
+     * 当前已存储的区块数量
+     *
+     * @return 区块数量
+     */
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * 是否存储了指定高度的区块
+     *
+     * @param height 区块高度
+     * @return 存在则返回<tt>true</tt>
+     */
+    synchronized boolean contains(int height) {
+        int i = height - baseHeight;
+        return i >= 0 && i < count && lengths[i] > 0;
+    }
+
+    /**
+     * 读取指定高度的区块
+     *
+     * @param height 区块高度
+     * @return 区块字节，如果不存在则返回{@code null}
+     * @throws IOException 区块文件读取失败
+     */
+    byte[] read(int height) throws IOException {
+        long location;
+        int length;
+        synchronized (this) {
+            int i = height - baseHeight;
+            if (i < 0 || i >= count || lengths[i] == 0) {
+                return null;
+            }
+            location = locations[i];
+            length = lengths[i];
+        }
+        FileChannel channel = file((int) (location >>> OFFSET_BITS));
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = location & OFFSET_MASK;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of block file");
+            }
+            position += read;
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 将区块追加写入当前区块文件，并追加一条索引记录
+     *
+     * @param height 区块高度
+     * @param bytes  区块字节
+     * @throws IOException              区块文件或索引文件写入失败
+     * @throws IllegalArgumentException 区块高度不连续，此时不写入任何数据
+     */
+    synchronized void write(int height, byte[] bytes) throws IOException {
+        checkHeight(height);
+        if (activeSize > 0 && activeSize + bytes.length > config.getBlockFileMaxSize()) {
+            file(activeIndex).force(false);
+            activeIndex++;
+            activeSize = file(activeIndex).size();
+        }
+        long offset = activeSize;
+        writeFully(file(activeIndex), ByteBuffer.wrap(bytes), offset);
+        activeSize += bytes.length;
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+        record.putInt(height).putInt(activeIndex).putLong(offset).putInt(bytes.length).flip();
+        writeFully(indexChannel, record, indexChannel.size());
+        index(height, activeIndex, offset, bytes.length);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * 将当前区块文件及索引文件落盘
+     *
+     * @throws IOException 落盘失败
+     */
+    synchronized void sync() throws IOException {
+        file(activeIndex).force(false);
+        indexChannel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel channel : files.values()) {
+            channel.close();
+        }
+        indexChannel.close();
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import com.google.common.io.Files;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按文件路径缓存已打开{@link FileChannel}的有界句柄缓存。
+ *
+ * <p>读写方通过{@link #acquire(String, boolean)}获取句柄并在使用后{@link #release(Handle)}，句柄以引用计数记录使用者数量，
+ * 只有引用计数为0且空闲超时的句柄才会被{@link #evictIdle()}关闭；打开的句柄数超过上限时，
+ * 立即按最近使用时间关闭最久未使用的空闲句柄，直至回落到上限的四分之三。
+ *
+ * <p>同一路径在任意时刻至多只有一个被引用的句柄，{@link Handle#read()}与{@link Handle#write(byte[])}在句柄内以读写锁互斥，
+ * 因此对同一索引文件的写入不会交错，读取也不会看到写了一半的值或新值之后残留的旧值尾部。热key的每一次读取只需一次{@code fstat}和一次{@code pread}，
+ * 每一次写入只需一次{@code pwrite}，仅在值变短时额外执行一次{@code ftruncate}。
+ *
+ * @author agent on 2026/10/17 06:40
+ * @version 1.0
+ * @see Range
+ * @since 1.0
+ */
+class ChannelCache implements Closeable {
+
+    /** 打开的句柄数量上限 */
+    private final int maxOpen;
+    /** 空闲句柄的存活时间，单位为毫秒 */
+    private final long idleMillis;
+    private final ConcurrentHashMap<String, Handle> handles = new ConcurrentHashMap<>();
+
+    ChannelCache(int maxOpen, long idleMillis) {
+        this.maxOpen = maxOpen;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * 获取路径对应文件的句柄并增加其引用计数，使用完毕后必须调用{@link #release(Handle)}
+     *
+     * @param path   文件完整路径及文件名
+     * @param create 文件不存在时是否创建文件及其父目录
+     * @return 文件句柄，如果文件不存在且不要求创建，则返回{@code null}
+     * @throws IOException 文件打开失败
+     */
+    Handle acquire(String path, boolean create) throws IOException {
+        while (true) {
+            Handle handle = handles.get(path);
+            if (null == handle) {
+                FileChannel channel = open(path, create);
+                if (null == channel) {
+                    return null;
+                }
+                Handle opened = new Handle(path, channel);
+                handle = handles.putIfAbsent(path, opened);
+                if (null == handle) {
+                    handle = opened;
+                    if (handles.size() > maxOpen) {
+                        evict(handles.size() - maxOpen * 3 / 4, 0);
+                    }
+                } else {
+                    channel.close();
+                }
+            }
+            synchronized (handle) {
+                if (!handle.closed) {
+                    handle.refs++;
+                    return handle;
+                }
+            }
+        }
+    }
+
+    private static FileChannel open(String path, boolean create) throws IOException {
+        if (!create) {
+            try {
+                return FileChannel.open(Paths.get(path), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+        try {
+            return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            Files.createParentDirs(new File(path));
+            return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * 释放句柄，减少其引用计数
+     *
+     * @param handle 文件句柄，为{@code null}时忽略
+     */
+    void release(Handle handle) {
+        if (null == handle) {
+            return;
+        }
+        synchronized (handle) {
+            handle.refs--;
+            handle.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 关闭所有空闲超时的句柄，由{@link Housekeeper}周期调用
+     */
+    void evictIdle() {
+        evict(Integer.MAX_VALUE, idleMillis);
+    }
+
+    /**
+     * 按最近使用时间由远及近关闭空闲的句柄
+     *
+     * @param count    最多关闭的句柄数量
+     * @param idleTime 句柄至少空闲的时间，单位为毫秒
+     */
+    private void evict(int count, long idleTime) {
+        long deadline = System.currentTimeMillis() - idleTime;
+        List<Handle> idle = new ArrayList<>();
+        for (Handle handle : handles.values()) {
+            if (handle.refs == 0 && handle.lastUsed <= deadline) {
+                idle.add(handle);
+            }
+        }
+        if (idle.size() > count) {
+            idle.sort(Comparator.comparingLong(handle -> handle.lastUsed));
+        }
+        for (int i = 0; i < idle.size() && count > 0; i++) {
+            Handle handle = idle.get(i);
+            synchronized (handle) {
+                if (handle.refs != 0 || handle.closed) {
+                    continue;
+                }
+                handle.closed = true;
+                handles.remove(handle.path, handle);
+            }
+            count--;
+            try {
+                handle.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 当前打开的句柄数量
+     *
+     * @return 打开的句柄数量
+     */
+    int size() {
+        return handles.size();
+    }
+
+    @Override
+    public void close() {
+        for (Handle handle : handles.values()) {
+            synchronized (handle) {
+                handle.closed = true;
+            }
+            try {
+                handle.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        handles.clear();
+    }
+
+    /**
+     * 已打开文件的句柄
+     *
+     * @author agent on 2026/10/17 06:40
+     * @version 1.0
+     * @see ChannelCache
+     * @since 1.0
+     */
+    static class Handle {
+
+        private final String path;
+        private final FileChannel channel;
+        /** 读取共享、写入独占的文件内容锁，与引用计数分开，写入期间不阻塞其它使用者获取及释放句柄 */
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        /** 引用计数，在句柄上同步修改 */
+        private volatile int refs;
+        /** 最近一次释放的时间 */
+        private volatile long lastUsed;
+        /** 是否已被关闭，在句柄上同步访问 */
+        private boolean closed;
+
+        private Handle(String path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        /**
+         * 读取文件全部内容
+         *
+         * @return 文件内容
+         * @throws IOException 读取失败
+         */
+        byte[] read() throws IOException {
+            lock.readLock().lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    position += read;
+                }
+                return buffer.position() == buffer.capacity() ? buffer.array()
+                        : Arrays.copyOf(buffer.array(), buffer.position());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 以指定内容覆盖文件
+         *
+         * @param bytes 文件内容
+         * @throws IOException 写入失败
+         */
+        void write(byte[] bytes) throws IOException {
+            lock.writeLock().lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                if (channel.size() > bytes.length) {
+                    channel.truncate(bytes.length);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void force() throws IOException {
+            channel.force(true);
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import java.util.Arrays;
+
+/**
+ * 结点中hash冲突键的紧凑索引。
+ *
+ * <p>冲突键按写入顺序紧凑存放于键数组中，每一个键在键数组中的下标在其生命周期内保持不变，
+ * 结点据此将对应的值存放于同下标的值数组中，两者构成并行数组。
+ *
+ * <p>落在同一结点中的键其{@code hashCode()}通常完全相同，按hash值散列无法区分它们。
+ * 因此冲突键数量不超过{@link #LINEAR_LIMIT}时直接顺序比较；超过后，如果所有冲突键均为同一个实现了{@link Comparable}的类，
+ * 则与{@link java.util.HashMap}树化时一样按键的自然顺序建立有序下标数组，查找为二分查找，
+ * 写入时仅需移动该下标数组，已写入的键和值均无需移动；键无法相互比较时仍为顺序比较。
+ *
+ * @author agent on 2026/10/17 06:22
+ * @version 1.0
+ * @see TreeMemoryMap.Node
+ * @see TreeMemoryMap.ArenaNode
+ * @since 1.0
+ */
+class CollisionBucket<K> {
+
+    /** 顺序比较的最大键数量，超过后按键的自然顺序建立有序下标数组 */
+    private static final int LINEAR_LIMIT = 8;
+    /** 键数组初始长度 */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /** 按写入顺序紧凑存放的键 */
+    private Object[] keys;
+    /** 键数量 */
+    private int size;
+    /** 所有键是否均为同一个实现了{@link Comparable}的类 */
+    private boolean comparable;
+    /** 按键的自然顺序排列的键下标，键数量不超过{@link #LINEAR_LIMIT}或键无法相互比较时为{@code null} */
+    private int[] order;
+    /** 有序下标数组中的下标数量 */
+    private int ordered;
+
+    CollisionBucket(K key) {
+        keys = new Object[INITIAL_CAPACITY];
+        keys[0] = key;
+        size = 1;
+        comparable = key instanceof Comparable;
+    }
+
+    /**
+     * 键数组当前长度，与之并行的值数组长度不应小于该值
+     *
+     * @return 键数组当前长度
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * 获取键在键数组中的下标
+     *
+     * @param key 键
+     * @return 键在键数组中的下标，如果不存在则返回-1
+     */
+    int indexOf(Object key) {
+        if (null != order && key.getClass() == keys[0].getClass()) {
+            int i = search(key);
+            if (i >= 0 && (keys[order[i]] == key || keys[order[i]].equals(key))) {
+                return order[i];
+            }
+            if (i < 0) {
+                return -1;
+            }
+            // compareTo与equals不一致时退回顺序比较
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key || keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 追加一个不存在的键
+     *
+     * @param key 键
+     * @return 键在键数组中的下标
+     */
+    int add(K key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+        }
+        int index = size++;
+        keys[index] = key;
+        if (comparable && key.getClass() != keys[0].getClass()) {
+            comparable = false;
+            order = null;
+        }
+        if (null != order) {
+            insert(index);
+        } else if (comparable && size > LINEAR_LIMIT) {
+            order = new int[keys.length];
+            ordered = 0;
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 将键下标按键的自然顺序插入有序下标数组
+     *
+     * @param index 键在键数组中的下标
+     */
+    private void insert(int index) {
+        if (order.length < keys.length) {
+            order = Arrays.copyOf(order, keys.length);
+        }
+        int i = search(keys[index]);
+        int at = i < 0 ? -(i + 1) : i;
+        System.arraycopy(order, at, order, at + 1, ordered - at);
+        order[at] = index;
+        ordered++;
+    }
+
+    /**
+     * 在有序下标数组中二分查找键
+     *
+     * @param key 键
+     * @return 键在有序下标数组中的位置；如果不存在，则返回 <tt>(-(插入点) - 1)</tt>
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int search(Object key) {
+        int low = 0;
+        int high = ordered - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = ((Comparable) keys[order[mid]]).compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+}
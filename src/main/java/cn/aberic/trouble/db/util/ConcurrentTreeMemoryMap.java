@@ -0,0 +1,266 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的内存B-Tree。
+ *
+ * <p>寻址方式与{@link TreeMemoryMap}完全一致，区别在于结点及子结点范围对象均存放于{@link AtomicReferenceArray}中，
+ * 写入方自上而下逐层定位时以CAS安装缺失的子结点范围对象，写入新key时以CAS将新结点压入槽位的冲突链表头部，
+ * 覆盖已有key时仅原子替换结点中的值。读取方只做volatile读，不加锁也不重试。
+ *
+ * <p>结点数组及子结点范围数组在首次写入时以CAS创建。值始终存放于堆中，不使用堆外值存储区。
+ *
+ * @author agent on 2026/10/17 06:30
+ * @version 1.0
+ * @see HashConcurrentMemoryMap
+ * @see TreeMemoryMap
+ * @since 1.0
+ */
+class ConcurrentTreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = -2309657715281654394L;
+
+    /** 当前结点范围对象的根对象，祖宗结点 */
+    private ConcurrentMemoryRange<K, V> root;
+
+    /**
+     * @param size 所属哈希表的数据大小计数，写入新key时累加
+     */
+    ConcurrentTreeMemoryMap(int treeMaxLevel, int nodeArrayLength, LongAdder size) {
+        root = new ConcurrentMemoryRange<>(treeMaxLevel, nodeArrayLength);
+        root.size = size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Range<K, V> range() {
+        return root;
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class ConcurrentMemoryRange<K, V> extends Range<K, V> {
+
+        private static final AtomicReferenceFieldUpdater<ConcurrentMemoryRange, AtomicReferenceArray> NODE_SLOTS =
+                AtomicReferenceFieldUpdater.newUpdater(ConcurrentMemoryRange.class, AtomicReferenceArray.class, "nodeSlots");
+        private static final AtomicReferenceFieldUpdater<ConcurrentMemoryRange, AtomicReferenceArray> CHILD_SLOTS =
+                AtomicReferenceFieldUpdater.newUpdater(ConcurrentMemoryRange.class, AtomicReferenceArray.class, "childSlots");
+
+        /** 所属哈希表的数据大小计数，仅根结点范围对象持有 */
+        LongAdder size;
+        /** 结点数组，首次写入时创建 */
+        private volatile AtomicReferenceArray<RangePair<K, V>> nodeSlots;
+        /** 当前结点范围的子对象数组，首次写入时创建 */
+        private volatile AtomicReferenceArray<Range<K, V>> childSlots;
+
+        ConcurrentMemoryRange(int treeMaxLevel, int nodeArrayLength) {
+            super(treeMaxLevel, nodeArrayLength);
+        }
+
+        ConcurrentMemoryRange(int levelNow, int keyIndexInNode, int degreeForOneLevelNow, int treeMaxLevel,
+                              int nodeArrayLength) {
+            super(levelNow, keyIndexInNode, degreeForOneLevelNow, treeMaxLevel, nodeArrayLength);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        V putExec(int real, K key, V value, int m, int v) {
+            ConcurrentMemoryRange<K, V> p = this, c = this;
+            // 自上而下逐层定位，第m层之上第k层父结点范围对象在整层度中的顺序位置为(v - 1) / y^k + 1
+            for (int k = treeMaxLevel - m - 1; k >= 0; k--) {
+                int temV = geometry.divideByDegreePower(v - 1, k) + 1;
+                int selfV = geometry.modDegreePower(temV - 1, 1);
+                AtomicReferenceArray<Range<K, V>> children = p.childSlots();
+                c = (ConcurrentMemoryRange<K, V>) children.get(selfV);
+                if (null == c) {
+                    ConcurrentMemoryRange<K, V> range = new ConcurrentMemoryRange<>(p.levelNow - 1, 0, temV,
+                            treeMaxLevel, nodeArrayLength);
+                    c = children.compareAndSet(selfV, null, range) ? range
+                            : (ConcurrentMemoryRange<K, V>) children.get(selfV);
+                }
+                p = c;
+            }
+            // z = (real - (v - 1)(y^m))/(y^(m - 1)) - 1
+            int minV = geometry.divideByDegreePower(real - (v - 1) * degreePower(m), m - 1) - 1;
+            AtomicReferenceArray<RangePair<K, V>> nodes = c.nodeSlots();
+            ConcurrentNode<K, V> node = null;
+            while (true) {
+                ConcurrentNode<K, V> head = (ConcurrentNode<K, V>) nodes.get(minV);
+                ConcurrentNode<K, V> exist = null == head ? null : head.find(key);
+                if (null != exist) {
+                    return exist.setValue(key, value);
+                }
+                if (null == node) {
+                    node = new ConcurrentNode<>(key, value, head);
+                } else {
+                    node.next = head;
+                }
+                if (nodes.compareAndSet(minV, head, node)) {
+                    size.increment();
+                    return value;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private AtomicReferenceArray<RangePair<K, V>> nodeSlots() {
+            AtomicReferenceArray<RangePair<K, V>> slots = nodeSlots;
+            if (null == slots) {
+                NODE_SLOTS.compareAndSet(this, null, new AtomicReferenceArray<>(nodeArrayLength));
+                slots = nodeSlots;
+            }
+            return slots;
+        }
+
+        @SuppressWarnings("unchecked")
+        private AtomicReferenceArray<Range<K, V>> childSlots() {
+            AtomicReferenceArray<Range<K, V>> slots = childSlots;
+            if (null == slots) {
+                CHILD_SLOTS.compareAndSet(this, null, new AtomicReferenceArray<>(treeMaxDegree));
+                slots = childSlots;
+            }
+            return slots;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        RangePair<K, V> node(int index) {
+            AtomicReferenceArray<RangePair<K, V>> slots = nodeSlots;
+            return null == slots ? null : slots.get(index);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        Range<K, V> childRange(int index) {
+            AtomicReferenceArray<Range<K, V>> slots = childSlots;
+            return null == slots ? null : slots.get(index);
+        }
+
+    }
+
+    /**
+     * 线程安全的结点对象
+     *
+     * <p>同一槽位中hash冲突的key以单向链表串联，链表只在头部以CAS追加，结点一经发布其key与后继不再改变，
+     * 因此读取方遍历链表无需加锁。
+     *
+     * @author agent on 2026/10/17 06:30
+     * @version 1.0
+     * @see ConcurrentMemoryRange
+     * @since 1.0
+     */
+    @SuppressWarnings("rawtypes")
+    static class ConcurrentNode<K, V> implements RangePair<K, V> {
+
+        private static final AtomicReferenceFieldUpdater<ConcurrentNode, Object> VALUE =
+                AtomicReferenceFieldUpdater.newUpdater(ConcurrentNode.class, Object.class, "value");
+
+        /** 存储k */
+        private final K key;
+        /** 存储v */
+        private volatile V value;
+        /** 同一槽位中的下一个冲突结点，仅在发布前设置 */
+        private ConcurrentNode<K, V> next;
+
+        ConcurrentNode(K key, V value, ConcurrentNode<K, V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * 在冲突链表中查找key对应的结点
+         *
+         * @param key key
+         * @return key对应的结点，如果不存在则返回{@code null}
+         */
+        ConcurrentNode<K, V> find(K key) {
+            for (ConcurrentNode<K, V> node = this; null != node; node = node.next) {
+                if (node.key == key || node.key.equals(key)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        public final K getKey() {
+            return key;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        public final V getValue(K key) {
+            ConcurrentNode<K, V> node = find(key);
+            return null == node ? null : node.value;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public final V setValue(K key, V newValue) {
+            ConcurrentNode<K, V> node = find(key);
+            return null == node ? null : (V) VALUE.getAndSet(node, newValue);
+        }
+
+    }
+
+}
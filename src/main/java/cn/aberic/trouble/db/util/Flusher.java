@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+import cn.aberic.trouble.db.core.TDDurability;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按{@link TDDurability}执行落盘的单表落盘器。
+ *
+ * <p>写入方在每一次写入完成后调用{@link #written()}。落盘器只记录未落盘的写入数量，
+ * 多次写入合并为一次落盘：{@link TDDurability#INTERVAL}由{@link Housekeeper}周期检查，
+ * 期间有写入时才落盘；{@link TDDurability#BATCH}由使写入数量达到批次大小的写入方落盘；
+ * {@link TDDurability#ALWAYS}由每一个写入方在返回前落盘，同时到达的写入方共用同一次落盘。
+ *
+ * @author agent on 2026/10/17 06:44
+ * @version 1.0
+ * @see HashDiskMap
+ * @see HashBlockMap
+ * @since 1.0
+ */
+class Flusher {
+
+    private final TDDurability durability;
+    private final int batchSize;
+    /** 落盘操作 */
+    private final Runnable sync;
+    /** 未落盘的写入数量 */
+    private final AtomicInteger pending = new AtomicInteger();
+    /** 周期落盘任务，仅{@link TDDurability#INTERVAL}策略下存在 */
+    private ScheduledFuture<?> interval;
+
+    private Flusher(TDDurability durability, TDConfig config, Housekeeper housekeeper, Runnable sync) {
+        this.durability = durability;
+        this.batchSize = Math.max(1, config.getDurabilityBatchSize());
+        this.sync = sync;
+        if (durability == TDDurability.INTERVAL) {
+            interval = housekeeper.schedule(this::flush, config.getDurabilityIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 按落盘策略创建落盘器
+     *
+     * @param durability  落盘策略，即{@link TDConfig#getDurability(TDDurability)}按表类型解析后的策略
+     * @param config      表配置
+     * @param housekeeper 执行周期落盘的调度器
+     * @param sync        落盘操作
+     * @return 落盘器，{@link TDDurability#NONE}策略下无需落盘，返回{@code null}
+     */
+    static Flusher create(TDDurability durability, TDConfig config, Housekeeper housekeeper, Runnable sync) {
+        return durability == TDDurability.NONE ? null : new Flusher(durability, config, housekeeper, sync);
+    }
+
+    /**
+     * 记录一次已完成的写入，并按落盘策略决定是否立即落盘
+     */
+    void written() {
+        int count = pending.incrementAndGet();
+        if (durability == TDDurability.ALWAYS || (durability == TDDurability.BATCH && count >= batchSize)) {
+            flush();
+        }
+    }
+
+    /**
+     * 如果有未落盘的写入，则执行一次落盘
+     */
+    synchronized void flush() {
+        if (pending.getAndSet(0) > 0) {
+            sync.run();
+        }
+    }
+
+    /**
+     * 取消周期落盘任务，并将剩余的写入落盘
+     */
+    void close() {
+        if (null != interval) {
+            interval.cancel(false);
+        }
+        flush();
+    }
+
+}
@@ -25,7 +25,10 @@
 package cn.aberic.trouble.db.util;
 
 import cn.aberic.trouble.db.block.TroubleBlock;
+import cn.aberic.trouble.db.core.TDCacheStats;
 import cn.aberic.trouble.db.core.TDConfig;
+import cn.aberic.trouble.db.core.TDDurability;
+import cn.aberic.trouble.db.core.TDManager;
 
 import java.io.Serializable;
 
@@ -40,15 +43,49 @@ public class HashBlockMap<K> extends AbstractHashMap<K, TroubleBlock> implements
     private static final long serialVersionUID = -9214074875130191502L;
 
     private TreeBlockMap<K> treeBlockMap;
+    /** 读缓存，未启用时为{@code null} */
+    private ValueCache<TroubleBlock> cache;
+    /** 按{@link TDConfig#getDurability()}落盘的落盘器，无需落盘时为{@code null} */
+    private Flusher flusher;
 
     public HashBlockMap(String name) {
         treeBlockMap = new TreeBlockMap<>(name);
         treeMaxLength = treeBlockMap.range().treeMaxLength;
+        cache = ValueCache.create(new TDConfig());
     }
 
     public HashBlockMap(String name, TDConfig config) {
-        treeBlockMap = new TreeBlockMap<>(name, config);
+        this(name, config, null);
+    }
+
+    /**
+     * @param manager 所属实例，区块中的交易索引及写集写入该实例的磁盘表，为{@code null}时写入{@link TDManager#obtain()}
+     */
+    public HashBlockMap(String name, TDConfig config, TDManager manager) {
+        this(name, config, manager, Housekeeper.shared());
+    }
+
+    /**
+     * @param manager     所属实例，区块中的交易索引及写集写入该实例的磁盘表，为{@code null}时写入{@link TDManager#obtain()}
+     * @param housekeeper 执行周期落盘的调度器
+     */
+    public HashBlockMap(String name, TDConfig config, TDManager manager, Housekeeper housekeeper) {
+        treeBlockMap = new TreeBlockMap<>(name, config, manager);
         treeMaxLength = treeBlockMap.range().treeMaxLength;
+        cache = ValueCache.create(config);
+        Range<K, TroubleBlock> range = treeBlockMap.range();
+        // 区块不允许丢失，默认每一次写入均落盘
+        flusher = Flusher.create(config.getDurability(TDDurability.ALWAYS), config, housekeeper, range::sync);
+    }
+
+    @Override
+    int size() {
+        return ((TreeBlockMap.BlockRange<K>) treeBlockMap.range()).size();
+    }
+
+    @Override
+    boolean isEmpty() {
+        return size() == 0;
     }
 
     @Override
@@ -60,16 +97,47 @@ public class HashBlockMap<K> extends AbstractHashMap<K, TroubleBlock> implements
     @Override
     public TroubleBlock get(int hash, K key) {
         int unit = unit(hash);
-        return treeBlockMap.get(unit, storeHash(hash, unit), key);
+        int storeHash = storeHash(hash, unit);
+        if (null == cache) {
+            return treeBlockMap.get(unit, storeHash, key);
+        }
+        return cache.get(unit, storeHash, () -> treeBlockMap.get(unit, storeHash, key));
     }
 
     @Override
     public TroubleBlock put(int hash, K key, TroubleBlock value) {
-        if (!containsKey(hash - 1, key)) {
+        if (!isEmpty() && !containsKey(hash - 1, key)) {
             return null;
         }
         int unit = unit(hash);
-        return treeBlockMap.put(unit, storeHash(hash, unit), key, value);
+        int storeHash = storeHash(hash, unit);
+        TroubleBlock block = treeBlockMap.put(unit, storeHash, key, value);
+        if (null != cache) {
+            cache.put(unit, storeHash, block);
+        }
+        if (null != flusher) {
+            flusher.written();
+        }
+        return block;
+    }
+
+    /**
+     * 将区块文件及区块索引文件落盘并关闭
+     */
+    public void close() {
+        if (null != flusher) {
+            flusher.close();
+        }
+        treeBlockMap.range().close();
+    }
+
+    /**
+     * 获取读缓存的统计快照
+     *
+     * @return 统计快照，未启用读缓存时返回{@code null}
+     */
+    public TDCacheStats cacheStats() {
+        return null == cache ? null : cache.stats();
     }
 
 }
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的内存哈希表。
+ *
+ * <p>每一个unit对应一棵{@link ConcurrentTreeMemoryMap}，存放于{@link UnitDirectory}中并在首次写入时以CAS发布，
+ * 读写均不加锁。数据大小以{@link LongAdder}计数，仅在写入新key时累加。
+ *
+ * @author agent on 2026/10/17 06:30
+ * @version 1.0
+ * @see ConcurrentTreeMemoryMap
+ * @see HashMemoryMap
+ * @since 1.0
+ */
+public class HashConcurrentMemoryMap<K, V> extends AbstractHashMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = -6455129683170813072L;
+
+    /** 当前Hash表中数据大小 */
+    private final LongAdder size = new LongAdder();
+    /** 按unit稀疏存储于目录中的B-tree，只有写入过key的unit才会创建 */
+    private final UnitDirectory<ConcurrentTreeMemoryMap<K, V>> treeMaps;
+    /** B-Tree的层 - n */
+    private final int treeMaxLevel;
+    /** 结点范围对象中的所属子结点数组大小 - x */
+    private final int nodeArrayLength;
+
+    public HashConcurrentMemoryMap() {
+        this(0, 0);
+    }
+
+    public HashConcurrentMemoryMap(TDConfig config) {
+        this(config.getTreeMaxLevel(), config.getNodeArrayLength());
+    }
+
+    private HashConcurrentMemoryMap(int treeMaxLevel, int nodeArrayLength) {
+        this.treeMaxLevel = treeMaxLevel;
+        this.nodeArrayLength = nodeArrayLength;
+        treeMaxLength = new Pair(treeMaxLevel, nodeArrayLength).treeMaxLength;
+        treeMaps = new UnitDirectory<>(treeMaxLength);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        long sum = size.sum();
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return size.sum() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(int hash, K key) {
+        int unit = unit(hash);
+        ConcurrentTreeMemoryMap<K, V> tree = treeMaps.get(unit);
+        return null != tree && tree.containsKey(unit, storeHash(hash, unit));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public V get(int hash, K key) {
+        int unit = unit(hash);
+        ConcurrentTreeMemoryMap<K, V> tree = treeMaps.get(unit);
+        return null == tree ? null : tree.get(unit, storeHash(hash, unit), key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public V put(int hash, K key, V value) {
+        if (null == key) {
+            throw new NullPointerException();
+        }
+        int unit = unit(hash);
+        ConcurrentTreeMemoryMap<K, V> tree = treeMaps.get(unit);
+        if (null == tree) {
+            tree = treeMaps.putIfAbsent(unit, new ConcurrentTreeMemoryMap<>(treeMaxLevel, nodeArrayLength, size));
+        }
+        return tree.put(unit, storeHash(hash, unit), key, value);
+    }
+
+}
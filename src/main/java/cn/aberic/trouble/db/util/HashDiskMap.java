@@ -24,9 +24,18 @@
 
 package cn.aberic.trouble.db.util;
 
+import cn.aberic.trouble.db.core.TDCacheStats;
 import cn.aberic.trouble.db.core.TDConfig;
+import cn.aberic.trouble.db.core.TDDurability;
+import cn.aberic.trouble.db.core.TDStorageMode;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * @author Aberic on 2018/10/14 20:39
@@ -37,16 +46,103 @@ public class HashDiskMap<K, V> extends AbstractHashMap<K, V> implements Serializ
 
     private static final long serialVersionUID = 8138886090168482947L;
 
-    private TreeDiskMap<K, V> treeDiskMap;
+    /** 按key分段的写入锁数量，必须为2的幂 */
+    private static final int WRITE_STRIPES = 64;
+
+    /** 根据{@link TDConfig#getStorageMode()}选定的磁盘映射 */
+    private AbstractTreeMap<K, V> treeDiskMap;
+    private TDConfig config;
+    /** 读缓存，未启用时为{@code null} */
+    private ValueCache<V> cache;
+    /** 并发表的预写日志，非并发表为{@code null} */
+    private WriteAheadLog wal;
+    /** 预写日志检查点锁，写入方持有读锁，检查点持有写锁 */
+    private ReentrantReadWriteLock checkpointLock;
+    /** 按key分段的写入锁，保证同一key在预写日志中的顺序与写入磁盘映射的顺序一致 */
+    private ReentrantLock[] writeLocks;
+    /** 关闭空闲索引文件句柄的周期任务 */
+    private ScheduledFuture<?> sweep;
+    /** 压缩段文件或值堆文件的周期任务，仅{@link TDStorageMode#LOG}及{@link TDStorageMode#MAPPED}模式下存在 */
+    private ScheduledFuture<?> compaction;
+    /** 按{@link TDConfig#getDurability()}落盘的落盘器，无需额外落盘时为{@code null} */
+    private Flusher flusher;
 
     public HashDiskMap(String name, boolean concurrent) {
-        treeDiskMap = new TreeDiskMap<>(name, concurrent);
-        treeMaxLength = treeDiskMap.range().treeMaxLength;
+        this(name, new TDConfig(), concurrent);
     }
 
     public HashDiskMap(String name, TDConfig config, boolean concurrent) {
-        treeDiskMap = new TreeDiskMap<>(name, config, concurrent);
+        this(name, config, concurrent, Housekeeper.shared());
+    }
+
+    /**
+     * @param housekeeper 执行后台维护任务的调度器
+     */
+    public HashDiskMap(String name, TDConfig config, boolean concurrent, Housekeeper housekeeper) {
+        this.config = config;
+        switch (config.getStorageMode()) {
+            case LOG:
+                treeDiskMap = new LogDiskMap<>(name, config);
+                break;
+            case MAPPED:
+                treeDiskMap = new MappedDiskMap<>(name, config);
+                break;
+            default:
+                treeDiskMap = new TreeDiskMap<>(name, config, concurrent);
+                break;
+        }
         treeMaxLength = treeDiskMap.range().treeMaxLength;
+        cache = ValueCache.create(config);
+        Range<K, V> range = treeDiskMap.range();
+        if (concurrent) {
+            // 并发表默认每批组提交均落盘预写日志，ALWAYS策略下无需额外落盘
+            TDDurability durability = config.getDurability(TDDurability.ALWAYS);
+            openWal(name, durability == TDDurability.ALWAYS);
+            if (durability != TDDurability.ALWAYS) {
+                flusher = Flusher.create(durability, config, housekeeper, this::forceWal);
+            }
+        } else {
+            flusher = Flusher.create(config.getDurability(TDDurability.NONE), config, housekeeper, range::sync);
+        }
+        sweep = housekeeper.schedule(range::sweep, config.getChannelIdleMillis(), TimeUnit.MILLISECONDS);
+        if (config.getStorageMode() == TDStorageMode.LOG || config.getStorageMode() == TDStorageMode.MAPPED) {
+            compaction = housekeeper.scheduleCompaction(() -> range.compact(housekeeper),
+                    config.getCompactionIntervalMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 打开预写日志，重放其中尚未确认落盘的写入，落盘后清空日志
+     *
+     * @param name          表名
+     * @param forceOnCommit 每批组提交是否落盘预写日志
+     */
+    @SuppressWarnings("unchecked")
+    private void openWal(String name, boolean forceOnCommit) {
+        checkpointLock = new ReentrantReadWriteLock();
+        writeLocks = new ReentrantLock[WRITE_STRIPES];
+        for (int i = 0; i < WRITE_STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+        try {
+            wal = new WriteAheadLog(name, new File(TDConfig.storageWalFilePath(config.getDbPath(), name)),
+                    forceOnCommit);
+            wal.replay((unit, storeHash, value) ->
+                    treeDiskMap.put(unit, storeHash, null, (V) config.getCodec().decode(value)));
+            treeDiskMap.range().sync();
+            wal.checkpoint();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void forceWal() {
+        try {
+            wal.force();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     @Override
@@ -58,12 +154,124 @@ public class HashDiskMap<K, V> extends AbstractHashMap<K, V> implements Serializ
     @Override
     public V get(int hash, K key) {
         int unit = unit(hash);
-        return treeDiskMap.get(unit, storeHash(hash, unit), key);
+        int storeHash = storeHash(hash, unit);
+        if (null == cache) {
+            return treeDiskMap.get(unit, storeHash, key);
+        }
+        return cache.get(unit, storeHash, () -> treeDiskMap.get(unit, storeHash, key));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>并发表在写入磁盘映射前会先将值追加到预写日志，并等待其所在批次组提交。
+     * 写入完成后按{@link TDConfig#getDurability()}决定是否落盘。
+     *
+     * @return {@inheritDoc}
+     */
     @Override
     public V put(int hash, K key, V value) {
         int unit = unit(hash);
-        return treeDiskMap.put(unit, storeHash(hash, unit), key, value);
+        int storeHash = storeHash(hash, unit);
+        if (null == wal) {
+            return written(cache(unit, storeHash, treeDiskMap.put(unit, storeHash, key, value)));
+        }
+        V v;
+        ReentrantLock writeLock = writeLocks[hash & (WRITE_STRIPES - 1)];
+        checkpointLock.readLock().lock();
+        writeLock.lock();
+        try {
+            wal.append(unit, storeHash, config.getCodec().encode(value));
+            v = cache(unit, storeHash, treeDiskMap.put(unit, storeHash, key, value));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            writeLock.unlock();
+            checkpointLock.readLock().unlock();
+        }
+        written(v);
+        if (wal.size() > config.getWalMaxSize()) {
+            checkpoint();
+        }
+        return v;
+    }
+
+    /**
+     * 通知落盘器一次写入已完成
+     *
+     * @return 写入的结果
+     */
+    private V written(V value) {
+        if (null != flusher) {
+            flusher.written();
+        }
+        return value;
     }
+
+    /**
+     * 写入磁盘映射后同步更新读缓存，写入失败时移除缓存中可能已过期的值
+     *
+     * @return 写入磁盘映射的结果
+     */
+    private V cache(int unit, int storeHash, V value) {
+        if (null != cache) {
+            cache.put(unit, storeHash, value);
+        }
+        return value;
+    }
+
+    /**
+     * 获取读缓存的统计快照
+     *
+     * @return 统计快照，未启用读缓存时返回{@code null}
+     */
+    public TDCacheStats cacheStats() {
+        return null == cache ? null : cache.stats();
+    }
+
+    /**
+     * 关闭当前表，等待进行中的写入完成后将磁盘映射落盘，并清空和关闭预写日志
+     */
+    public void close() {
+        sweep.cancel(false);
+        if (null != compaction) {
+            compaction.cancel(false);
+        }
+        if (null != flusher) {
+            flusher.close();
+        }
+        if (null == wal) {
+            treeDiskMap.range().close();
+            return;
+        }
+        checkpointLock.writeLock().lock();
+        try {
+            treeDiskMap.range().close();
+            wal.checkpoint();
+            wal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 预写日志超过大小上限后，将磁盘映射中的写入落盘并清空预写日志
+     */
+    private void checkpoint() {
+        checkpointLock.writeLock().lock();
+        try {
+            if (wal.size() > config.getWalMaxSize()) {
+                treeDiskMap.range().sync();
+                wal.checkpoint();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
 }
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+/**
+ * 以非负 <tt>int</tt> 为键、<tt>int</tt> 为值的内存映射。
+ *
+ * <p>值存放于每一个结点范围对象的 <tt>int[]</tt> 中，读写过程不装箱、不创建结点对象，
+ * 稳定状态下的读写不产生任何垃圾。不存在的键读取结果为默认值。
+ *
+ * @author agent on 2026/10/17 06:20
+ * @version 1.0
+ * @see PrimitiveMemoryMap
+ * @since 1.0
+ */
+public class HashIntMemoryMap extends PrimitiveMemoryMap<HashIntMemoryMap.IntRange> {
+
+    public HashIntMemoryMap() {
+        this(new TDConfig());
+    }
+
+    public HashIntMemoryMap(TDConfig config) {
+        super(config);
+    }
+
+    @Override
+    IntRange newRange(int levelNow) {
+        return new IntRange(geometry, levelNow);
+    }
+
+    /**
+     * 返回指定键所映射的值，如果此映射不包含该键，则返回0
+     *
+     * @param key 键
+     * @return 指定键所映射的值
+     */
+    public int get(int key) {
+        return get(key, 0);
+    }
+
+    /**
+     * 返回指定键所映射的值，如果此映射不包含该键，则返回 <tt>defaultValue</tt>
+     *
+     * @param key          键
+     * @param defaultValue 默认值
+     * @return 指定键所映射的值
+     */
+    public int get(int key, int defaultValue) {
+        IntRange range = range(key, false);
+        if (null == range) {
+            return defaultValue;
+        }
+        int index = range.nodeIndex(storeHash(key));
+        return range.isPresent(index) ? range.values[index] : defaultValue;
+    }
+
+    /**
+     * 将指定的值与此映射中的指定键关联
+     *
+     * @param key   键
+     * @param value 值
+     * @return 以前与 <tt>key</tt> 关联的值，如果没有，则返回0
+     */
+    public int put(int key, int value) {
+        IntRange range = range(key, true);
+        int index = range.nodeIndex(storeHash(key));
+        int old = range.values[index];
+        range.values[index] = value;
+        if (!range.markPresent(index)) {
+            size++;
+        }
+        return old;
+    }
+
+    static class IntRange extends PrimitiveRange<IntRange> {
+
+        /** 结点值数组 */
+        final int[] values;
+
+        IntRange(TreeGeometry geometry, int levelNow) {
+            super(geometry, levelNow);
+            values = new int[geometry.nodeArrayLength];
+        }
+
+        @Override
+        IntRange newRange(int levelNow) {
+            return new IntRange(geometry, levelNow);
+        }
+
+    }
+
+}
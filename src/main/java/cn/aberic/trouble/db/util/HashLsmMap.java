@@ -0,0 +1,702 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+import cn.aberic.trouble.db.core.TDDurability;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LSM-Tree表。
+ *
+ * <p>写入先追加到当前内存表的预写日志，再写入以{@link HashConcurrentMemoryMap}（即按unit划分的{@link ConcurrentTreeMemoryMap}）实现的内存表，
+ * 磁盘上只有顺序追加写入。内存表超过{@link TDConfig#getMemtableMaxSize()}后被冻结，
+ * 由{@link Housekeeper}在后台按hash值升序写为第0层的{@link SSTable}，落盘后删除其预写日志；写出失败时保持冻结并延迟重试。
+ * 冻结的内存表尚未写出而当前内存表又已写满时，写入方等待后台写出完成，以此限制内存表占用的内存。
+ *
+ * <p>第0层的有序表之间可能相互重叠，数量达到{@link TDConfig#getLsmLevel0MaxFiles()}后，
+ * 由{@link Housekeeper}的压缩线程在后台将其与第1层合并为第1层新的有序表，合并不占用写出内存表所用的线程；第i层（i &gt;= 1）的大小超过第0层上限的10^(i-1)倍后，
+ * 同样与下一层合并。合并时同一hash值只保留最新的值。
+ * 读取依次查找当前内存表、冻结中的内存表、第0层至最底层的有序表，每一个有序表先以布隆过滤器排除，
+ * 因此读放大至多为第0层有序表数量与层数之和。
+ *
+ * <p>内存表及各层有序表组成不可变的{@link Version}，冻结、写出及合并时整体替换。读取不加锁，
+ * 只读取当时的{@link Version}，并以引用计数保证读取期间有序表不会被关闭。
+ * 写入方之间在内存表上串行追加预写日志，仅与冻结内存表互斥，不会等待任何读取。
+ *
+ * <p>与磁盘表一致，键以hash值标识，hash值相同的键视为同一个键。
+ *
+ * @author agent on 2026/10/17 06:49
+ * @version 1.0
+ * @see SSTable
+ * @since 1.0
+ */
+public class HashLsmMap<K, V> extends AbstractHashMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = -3907398217651640593L;
+
+    /** 最大层数 */
+    private static final int MAX_LEVEL = 7;
+    /** 相邻两层的大小倍数 */
+    private static final int LEVEL_FANOUT = 10;
+    /** 内存表写出失败后的重试间隔，单位为毫秒 */
+    private static final long FLUSH_RETRY_MILLIS = 1000L;
+
+    private final String name;
+    private final TDConfig config;
+    private final Housekeeper housekeeper;
+    /** 预写日志的落盘策略 */
+    private final TDDurability durability;
+    /** 写入方共享持有读锁，替换{@link #version}时持有写锁，读取方不持有 */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 当前的内存表及各层有序表 */
+    private volatile Version version;
+    /** 有序表及预写日志的下一个编号 */
+    private final AtomicInteger nextId = new AtomicInteger();
+    /** 是否已提交写出任务 */
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    /** 写出锁，关闭时据此等待进行中的写出完成 */
+    private final Object flushLock = new Object();
+    /** 冻结的内存表写出完成时通知等待的写入方 */
+    private final Object flushed = new Object();
+    /** 是否已提交合并任务 */
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    /** 合并锁，关闭时据此等待进行中的合并完成 */
+    private final Object compactionLock = new Object();
+    /** 按{@link TDConfig#getDurability(TDDurability)}落盘预写日志的落盘器，无需落盘时为{@code null} */
+    private final Flusher flusher;
+    private volatile boolean closed;
+
+    public HashLsmMap(String name, TDConfig config) {
+        this(name, config, Housekeeper.shared());
+    }
+
+    /**
+     * @param housekeeper 执行后台写出、合并及周期落盘的调度器
+     */
+    public HashLsmMap(String name, TDConfig config, Housekeeper housekeeper) {
+        this.name = name;
+        this.config = config;
+        this.housekeeper = housekeeper;
+        treeMaxLength = new Pair(config.getTreeMaxLevel(), config.getNodeArrayLength()).treeMaxLength;
+        // 预写日志是内存表唯一的崩溃保护，默认每一次写入均落盘
+        durability = config.getDurability(TDDurability.ALWAYS);
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        flusher = Flusher.create(durability, config, housekeeper, this::forceWal);
+        scheduleFlush(0);
+        scheduleCompaction();
+    }
+
+    /**
+     * 加载各层有序表，将遗留的预写日志重放为冻结的内存表，由后台写为第0层有序表
+     */
+    private void open() throws IOException {
+        List<List<SSTable>> loaded = new ArrayList<>();
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            loaded.add(new ArrayList<>());
+        }
+        List<Integer> walIds = new ArrayList<>();
+        File[] files = new File(TDConfig.storageLsmDirPath(config.getDbPath(), name)).listFiles();
+        int maxId = -1;
+        for (File file : null == files ? new File[0] : files) {
+            int[] levelAndId = TDConfig.storageLsmTableLevelAndId(file.getName());
+            int walId = TDConfig.storageLsmWalId(file.getName());
+            if (null != levelAndId && levelAndId[0] < MAX_LEVEL) {
+                loaded.get(levelAndId[0]).add(SSTable.open(levelAndId[0], levelAndId[1], file));
+                maxId = Math.max(maxId, levelAndId[1]);
+            } else if (walId >= 0) {
+                walIds.add(walId);
+                maxId = Math.max(maxId, walId);
+            } else if (file.getName().endsWith(".tmp")) {
+                file.delete();
+            }
+        }
+        for (List<SSTable> level : loaded) {
+            level.sort(Comparator.comparingInt((SSTable table) -> table.id).reversed());
+        }
+        nextId.set(maxId + 1);
+        if (walIds.isEmpty()) {
+            version = new Version(newMemtable(), null, freeze(loaded));
+            return;
+        }
+        Collections.sort(walIds);
+        Memtable recovered = newMemtable();
+        for (int walId : walIds) {
+            File file = new File(TDConfig.storageLsmWalFilePath(config.getDbPath(), name, walId));
+            LogSegment wal = new LogSegment(walId, file);
+            List<long[]> records = new ArrayList<>();
+            wal.scan((unit, storeHash, offset, length) ->
+                    records.add(new long[]{unit * treeMaxLength + storeHash, offset, length}));
+            for (long[] record : records) {
+                recovered.put((int) record[0], wal.read(record[1], (int) record[2]));
+            }
+            wal.close();
+            recovered.replayed.add(file);
+        }
+        if (recovered.count > 0) {
+            version = new Version(newMemtable(), recovered, freeze(loaded));
+            return;
+        }
+        // 遗留的预写日志中没有记录，无需写出
+        recovered.wal.close();
+        recovered.wal.file.delete();
+        for (File file : recovered.replayed) {
+            file.delete();
+        }
+        version = new Version(newMemtable(), null, freeze(loaded));
+    }
+
+    private Memtable newMemtable() throws IOException {
+        int id = nextId.getAndIncrement();
+        return new Memtable(config, new LogSegment(id, new File(TDConfig.storageLsmWalFilePath(config.getDbPath(), name, id))));
+    }
+
+    private static List<List<SSTable>> freeze(List<List<SSTable>> levels) {
+        List<List<SSTable>> frozen = new ArrayList<>(levels.size());
+        for (List<SSTable> level : levels) {
+            frozen.add(Collections.unmodifiableList(new ArrayList<>(level)));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
+    @Override
+    public boolean containsKey(int hash, K key) {
+        return null != find(hash);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(int hash, K key) {
+        byte[] bytes = find(hash);
+        return null == bytes ? null : (V) config.getCodec().decode(bytes);
+    }
+
+    /**
+     * 由新到旧依次查找内存表及各层有序表，不加锁。
+     * 如果查找期间有序表被合并替换并已关闭，则基于新的{@link Version}重新查找，被替换的值必然存在于新的有序表中。
+     *
+     * @param hash hash值
+     * @return 值字节，不存在时返回{@code null}
+     */
+    private byte[] find(int hash) {
+        retry:
+        while (true) {
+            Version current = version;
+            byte[] bytes = current.memtable.get(hash);
+            if (null == bytes && null != current.immutable) {
+                bytes = current.immutable.get(hash);
+            }
+            if (null != bytes) {
+                return bytes;
+            }
+            for (List<SSTable> level : current.levels) {
+                for (SSTable table : level) {
+                    if (!table.retain()) {
+                        if (closed) {
+                            return null;
+                        }
+                        continue retry;
+                    }
+                    try {
+                        bytes = table.get(hash);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        return null;
+                    } finally {
+                        table.release();
+                    }
+                    if (null != bytes) {
+                        return bytes;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>写入依次追加到预写日志和内存表，同一内存表的写入方之间串行，不与读取互斥。
+     * 内存表写满时将其冻结并交由后台写为第0层有序表，上一个冻结的内存表尚未写出时等待其写出完成。
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public V put(int hash, K key, V value) {
+        byte[] bytes = config.getCodec().encode(value);
+        int unit = unit(hash);
+        ByteBuffer record = LogSegment.record(unit, storeHash(hash, unit), bytes);
+        try {
+            makeRoom();
+            lock.readLock().lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException(String.format("table %s is closed", name));
+                }
+                version.memtable.append(hash, record, bytes);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (null != flusher) {
+            flusher.written();
+        }
+        return value;
+    }
+
+    /**
+     * 当前内存表写满时将其冻结；如果上一个冻结的内存表尚未写出，则等待后台写出完成后再冻结
+     *
+     * @throws IOException 新内存表的预写日志创建失败
+     */
+    private void makeRoom() throws IOException {
+        while (!closed) {
+            Version current = version;
+            if (current.memtable.bytes < config.getMemtableMaxSize()) {
+                return;
+            }
+            if (null == current.immutable) {
+                freeze(current.memtable);
+                continue;
+            }
+            synchronized (flushed) {
+                if (version == current && !closed) {
+                    try {
+                        flushed.wait(FLUSH_RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 冻结已写满的内存表并提交后台写出，冻结时等待正在写入该内存表的写入方完成
+     *
+     * @param full 已写满的内存表
+     * @throws IOException 新内存表的预写日志创建失败，或冻结的预写日志落盘失败
+     */
+    private void freeze(Memtable full) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Version current = version;
+            if (closed || current.memtable != full || null != current.immutable) {
+                return;
+            }
+            if (durability != TDDurability.NONE) {
+                // 此后的落盘只作用于新的内存表，冻结的预写日志需在此落盘，保证已返回的写入不会丢失
+                full.wal.force();
+            }
+            version = new Version(newMemtable(), full, current.levels);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleFlush(0);
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (closed || null == version.immutable || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (delayMillis > 0) {
+                housekeeper.submit(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                housekeeper.submit(this::flush);
+            }
+        } catch (RejectedExecutionException e) {
+            flushing.set(false);
+        }
+    }
+
+    /**
+     * 将冻结的内存表写为第0层有序表，落盘后删除其预写日志，由{@link Housekeeper}执行。
+     * 写出失败时内存表保持冻结，其中的值仍可读取，并在{@link #FLUSH_RETRY_MILLIS}后重试。
+     */
+    private void flush() {
+        boolean done = false;
+        try {
+            synchronized (flushLock) {
+                Memtable frozen = version.immutable;
+                done = null == frozen || closed || flush(frozen);
+            }
+        } finally {
+            flushing.set(false);
+        }
+        if (!done) {
+            scheduleFlush(FLUSH_RETRY_MILLIS);
+            return;
+        }
+        synchronized (flushed) {
+            flushed.notifyAll();
+        }
+        // 写出完成到清除写出标记之间冻结的内存表未能提交写出任务，在此补交
+        scheduleFlush(0);
+        scheduleCompaction();
+    }
+
+    /**
+     * @param frozen 冻结的内存表
+     * @return 是否已写为有序表
+     */
+    private boolean flush(Memtable frozen) {
+        int id = nextId.getAndIncrement();
+        SSTable table;
+        try {
+            table = frozen.write(0, id, new File(TDConfig.storageLsmTableFilePath(config.getDbPath(), name, 0, id)));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            Version current = version;
+            List<List<SSTable>> next = new ArrayList<>(current.levels);
+            List<SSTable> level0 = new ArrayList<>(next.get(0));
+            level0.add(0, table);
+            next.set(0, level0);
+            version = new Version(current.memtable, null, freeze(next));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            frozen.wal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        frozen.wal.file.delete();
+        for (File file : frozen.replayed) {
+            file.delete();
+        }
+        return true;
+    }
+
+    private void forceWal() {
+        lock.readLock().lock();
+        try {
+            if (!closed) {
+                version.memtable.wal.force();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (closed || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            housekeeper.submitCompaction(this::compact);
+        } catch (RejectedExecutionException e) {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * 逐层检查并合并超出上限的层，直至所有层均未超出上限
+     */
+    private void compact() {
+        try {
+            synchronized (compactionLock) {
+                int level;
+                while (!closed && (level = overflowLevel()) >= 0) {
+                    merge(level);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * 获取第一个超出上限的层
+     *
+     * @return 层，所有层均未超出上限时返回-1
+     */
+    private int overflowLevel() {
+        List<List<SSTable>> current = version.levels;
+        if (current.get(0).size() >= config.getLsmLevel0MaxFiles()) {
+            return 0;
+        }
+        long maxLength = config.getMemtableMaxSize() * config.getLsmLevel0MaxFiles();
+        for (int i = 1; i < MAX_LEVEL - 1; i++, maxLength *= LEVEL_FANOUT) {
+            long length = 0;
+            for (SSTable table : current.get(i)) {
+                length += table.length();
+            }
+            if (length > maxLength) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 将指定层与下一层的所有有序表归并为下一层新的有序表，同一hash值只保留最新的值。
+     * 被替换的有序表在最后一个读取方释放后删除。
+     *
+     * @param level 被合并的层
+     */
+    private void merge(int level) throws IOException {
+        List<List<SSTable>> current = version.levels;
+        // 由新到旧排列，下标越小的有序表越新
+        List<SSTable> inputs = new ArrayList<>(current.get(level));
+        inputs.addAll(current.get(level + 1));
+        // 游标为 {有序表下标, 记录下标}，按hash值升序，hash值相同时较新的有序表在前
+        PriorityQueue<int[]> cursors = new PriorityQueue<>((a, b) -> {
+            int compare = Integer.compare(inputs.get(a[0]).hash(a[1]), inputs.get(b[0]).hash(b[1]));
+            return compare != 0 ? compare : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < inputs.size(); i++) {
+            if (inputs.get(i).count() > 0) {
+                cursors.add(new int[]{i, 0});
+            }
+        }
+        int id = nextId.getAndIncrement();
+        SSTable.Writer writer = new SSTable.Writer(level + 1, id,
+                new File(TDConfig.storageLsmTableFilePath(config.getDbPath(), name, level + 1, id)));
+        SSTable output;
+        try {
+            boolean first = true;
+            int last = 0;
+            while (!cursors.isEmpty()) {
+                int[] cursor = cursors.poll();
+                SSTable table = inputs.get(cursor[0]);
+                int hash = table.hash(cursor[1]);
+                if (first || hash != last) {
+                    writer.add(hash, table.value(cursor[1]));
+                    first = false;
+                    last = hash;
+                }
+                if (++cursor[1] < table.count()) {
+                    cursors.add(cursor);
+                }
+            }
+            output = writer.finish();
+        } catch (IOException e) {
+            writer.abort();
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            Version latest = version;
+            List<List<SSTable>> next = new ArrayList<>(latest.levels);
+            List<SSTable> upper = new ArrayList<>(next.get(level));
+            upper.removeAll(inputs);
+            List<SSTable> lower = new ArrayList<>(next.get(level + 1));
+            lower.removeAll(inputs);
+            lower.add(0, output);
+            next.set(level, upper);
+            next.set(level + 1, lower);
+            version = new Version(latest.memtable, latest.immutable, freeze(next));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (SSTable table : inputs) {
+            table.retire();
+        }
+    }
+
+    /**
+     * 关闭当前表，等待进行中的写出及合并完成后关闭所有有序表，内存表的预写日志落盘后保留，下次打开时重放
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        synchronized (flushed) {
+            flushed.notifyAll();
+        }
+        if (null != flusher) {
+            flusher.close();
+        }
+        synchronized (flushLock) {
+            synchronized (compactionLock) {
+                Version current = version;
+                try {
+                    current.memtable.wal.force();
+                    current.memtable.wal.close();
+                    if (null != current.immutable) {
+                        current.immutable.wal.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                for (List<SSTable> level : current.levels) {
+                    for (SSTable table : level) {
+                        table.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 某一时刻的内存表及各层有序表，不可修改，由写入方、写出及合并整体替换
+     *
+     * @author agent on 2026/10/17 06:49
+     * @version 1.0
+     * @see HashLsmMap
+     * @since 1.0
+     */
+    private static class Version {
+
+        /** 当前写入的内存表 */
+        private final Memtable memtable;
+        /** 已冻结等待写为有序表的内存表，没有时为{@code null} */
+        private final Memtable immutable;
+        /** 各层有序表，每层按由新到旧排列 */
+        private final List<List<SSTable>> levels;
+
+        private Version(Memtable memtable, Memtable immutable, List<List<SSTable>> levels) {
+            this.memtable = memtable;
+            this.immutable = immutable;
+            this.levels = levels;
+        }
+
+    }
+
+    /**
+     * 内存表，值以编码后的字节存放于{@link HashConcurrentMemoryMap}中，并记录写入过的hash值以便按序写出。
+     * 读取不加锁，写入在内存表上串行，保证预写日志中的记录顺序与内存表中的最终值一致。
+     *
+     * @author agent on 2026/10/17 06:49
+     * @version 1.0
+     * @see HashLsmMap
+     * @since 1.0
+     */
+    private static class Memtable {
+
+        /** 内存表中单条记录除值以外的估算开销 */
+        private static final int ENTRY_OVERHEAD = 32;
+
+        private final HashConcurrentMemoryMap<Integer, byte[]> map;
+        /** 内存表的预写日志 */
+        private final LogSegment wal;
+        /** 重放至该内存表的遗留预写日志，写出后删除 */
+        private final List<File> replayed = new ArrayList<>();
+        /** 写入过的hash值，可能重复 */
+        private int[] hashes = new int[1024];
+        private int count;
+        /** 内存表估算大小 */
+        private volatile long bytes;
+
+        private Memtable(TDConfig config, LogSegment wal) {
+            this.map = new HashConcurrentMemoryMap<>(new TDConfig().setTree(config.getTreeMaxLevel(), config.getNodeArrayLength()));
+            this.wal = wal;
+        }
+
+        private byte[] get(int hash) {
+            return map.get(hash, hash);
+        }
+
+        /**
+         * 将记录追加到预写日志并写入内存表
+         *
+         * @param hash   hash值
+         * @param record 由{@link LogSegment#record(int, int, byte[])}组装的记录
+         * @param value  值字节
+         * @throws IOException 预写日志写入失败
+         */
+        private synchronized void append(int hash, ByteBuffer record, byte[] value) throws IOException {
+            wal.append(record);
+            put(hash, value);
+        }
+
+        private synchronized void put(int hash, byte[] value) {
+            map.put(hash, hash, value);
+            if (count == hashes.length) {
+                hashes = Arrays.copyOf(hashes, count << 1);
+            }
+            hashes[count++] = hash;
+            bytes += value.length + ENTRY_OVERHEAD;
+        }
+
+        /**
+         * 将内存表按hash值升序写为有序表，调用时内存表已冻结
+         *
+         * @param level 有序表所在层
+         * @param id    有序表编号
+         * @param file  有序表文件
+         * @return 写入完成的有序表
+         * @throws IOException 写入失败
+         */
+        private SSTable write(int level, int id, File file) throws IOException {
+            int[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(hashes, count);
+            }
+            Arrays.sort(sorted);
+            SSTable.Writer writer = new SSTable.Writer(level, id, file);
+            try {
+                for (int i = 0; i < sorted.length; i++) {
+                    if (i == 0 || sorted[i] != sorted[i - 1]) {
+                        writer.add(sorted[i], get(sorted[i]));
+                    }
+                }
+                return writer.finish();
+            } catch (IOException e) {
+                writer.abort();
+                throw e;
+            }
+        }
+
+    }
+
+}
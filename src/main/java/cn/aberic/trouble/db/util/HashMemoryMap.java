@@ -27,7 +27,6 @@ package cn.aberic.trouble.db.util;
 import cn.aberic.trouble.db.core.TDConfig;
 
 import java.io.Serializable;
-import java.util.Arrays;
 
 /**
  * @author Aberic on 2018/10/8 22:10
@@ -38,42 +37,58 @@ public class HashMemoryMap<K, V> extends AbstractHashMap<K, V> implements Serial
 
     private static final long serialVersionUID = 2794796425862934413L;
 
-    /** 构造哈希表数组默认大小 */
-    private static final int DEFAULT_HASH_LENGTH = 4;
-    private static final int DEFAULT_LOAD_FACTOR = 2;
-
     /** 当前Hash表中数据大小 */
     private int size;
-    /** 构造哈希表数组检测用大小，始终比{@code #hashArrayLength}小1 */
-    private int hashArrayCheckLength;
-    /** 有序存储于哈希表中的B-tree */
-    private TreeMemoryMap<K, V>[] treeMaps;
+    /** 按unit稀疏存储于目录中的B-tree，只有写入过key的unit才会创建 */
+    private final UnitDirectory<TreeMemoryMap<K, V>> treeMaps;
+    /** B-Tree的层 - n */
+    private int treeMaxLevel;
+    /** 结点范围对象中的所属子结点数组大小 - x */
+    private int nodeArrayLength;
+    /** 堆外值存储区，未启用堆外存储时为{@code null} */
+    private ValueArena arena;
 
     public HashMemoryMap() {
-        this(DEFAULT_HASH_LENGTH, 0 , 0);
+        this(0, 0, null);
     }
 
     public HashMemoryMap(TDConfig config) {
-        this(DEFAULT_HASH_LENGTH, config.getTreeMaxLevel(), config.getNodeArrayLength());
+        this(config.getTreeMaxLevel(), config.getNodeArrayLength(),
+                config.isOffHeap() ? new ValueArena(config.getCodec(), config.getArenaSlabSize()) : null);
     }
 
-    @SuppressWarnings("unchecked")
-    private HashMemoryMap(int hashArrayLength, int treeMaxLevel, int nodeArrayLength) {
-        if (hashArrayLength <= 0) {
-            this.hashArrayLength = DEFAULT_HASH_LENGTH;
-        } else {
-            this.hashArrayLength = hashArrayLength;
-        }
-        this.hashArrayCheckLength = hashArrayLength - 1;
-        treeMaps = new TreeMemoryMap[this.hashArrayLength];
-        for (int i = 0; i < this.hashArrayLength; i++) {
-            TreeMemoryMap<K, V> treeMap = new TreeMemoryMap<>(treeMaxLevel, nodeArrayLength);
-            treeMaps[i] = treeMap;
-        }
-        treeMaxLength = treeMaps[0].range().treeMaxLength;
+    private HashMemoryMap(int treeMaxLevel, int nodeArrayLength, ValueArena arena) {
+        this.treeMaxLevel = treeMaxLevel;
+        this.nodeArrayLength = nodeArrayLength;
+        this.arena = arena;
+        treeMaxLength = new Pair(treeMaxLevel, nodeArrayLength).treeMaxLength;
+        treeMaps = new UnitDirectory<>(treeMaxLength);
         size = 0;
     }
 
+    private TreeMemoryMap<K, V> newTreeMap() {
+        return null == arena ? new TreeMemoryMap<>(treeMaxLevel, nodeArrayLength)
+                : new TreeMemoryMap<>(treeMaxLevel, nodeArrayLength, arena);
+    }
+
+    /**
+     * 堆外值存储区已分配的直接内存总量，单位为字节
+     *
+     * @return 直接内存总量，未启用堆外存储时返回0
+     */
+    public long offHeapCapacity() {
+        return null == arena ? 0 : arena.capacity();
+    }
+
+    /**
+     * 堆外值存储区中未存放值的内存总量，单位为字节，其中被覆盖释放的记录会被后续写入复用
+     *
+     * @return 未存放值的内存总量，未启用堆外存储时返回0
+     */
+    public long offHeapGarbage() {
+        return null == arena ? 0 : arena.garbage();
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -102,10 +117,8 @@ public class HashMemoryMap<K, V> extends AbstractHashMap<K, V> implements Serial
     @Override
     public boolean containsKey(int hash, K key) {
         int unit = unit(hash);
-        if (unit > hashArrayCheckLength) {
-            return false;
-        }
-        return treeMaps[unit].containsKey(unit, storeHash(hash, unit));
+        TreeMemoryMap<K, V> tree = treeMaps.get(unit);
+        return null != tree && tree.containsKey(unit, storeHash(hash, unit));
     }
 
     /**
@@ -116,10 +129,8 @@ public class HashMemoryMap<K, V> extends AbstractHashMap<K, V> implements Serial
     @Override
     public V get(int hash, K key) {
         int unit = unit(hash);
-        if (unit > hashArrayCheckLength) {
-            return null;
-        }
-        return treeMaps[unit].get(unit, storeHash(hash, unit), key);
+        TreeMemoryMap<K, V> tree = treeMaps.get(unit);
+        return null == tree ? null : tree.get(unit, storeHash(hash, unit), key);
     }
 
     /**
@@ -133,28 +144,22 @@ public class HashMemoryMap<K, V> extends AbstractHashMap<K, V> implements Serial
             throw new NullPointerException();
         }
         int unit = unit(hash);
-        if (unit > hashArrayCheckLength) {
-            resize(unit);
+        TreeMemoryMap<K, V> tree = treeMaps.get(unit);
+        if (null == tree) {
+            tree = treeMaps.putIfAbsent(unit, newTreeMap());
         }
-        V v = treeMaps[unit].put(unit, storeHash(hash, unit), key, value);
+        V v = tree.put(unit, storeHash(hash, unit), key, value);
         size++;
         return v;
     }
 
     /**
-     * 根据 <tt>unit</tt> 判定是否需要递归重设Hash数组大小
+     * 已创建的B-Tree数量
      *
-     * @param unit 当前传入key所期望在Hash数组中的下标
+     * @return 已创建的B-Tree数量
      */
-    private void resize(int unit) {
-        hashArrayLength += DEFAULT_LOAD_FACTOR;
-        hashArrayCheckLength = hashArrayLength - 1;
-        treeMaps = Arrays.copyOf(treeMaps, hashArrayLength);
-        treeMaps[hashArrayLength - 1] = new TreeMemoryMap<>();
-        treeMaps[hashArrayLength - 2] = new TreeMemoryMap<>();
-        if (unit > hashArrayCheckLength) {
-            resize(unit);
-        }
+    int units() {
+        return treeMaps.units();
     }
 
-}
\ No newline at end of file
+}
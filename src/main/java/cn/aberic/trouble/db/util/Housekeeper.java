@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台维护任务调度器。
+ *
+ * <p>所有表的周期性维护任务（如{@link Range}中空闲索引文件句柄的关闭）共用同一个有界的
+ * {@link ScheduledExecutorService}执行，线程数量与表及结点范围对象的数量无关。
+ * 线程均为守护线程，不会阻止JVM退出。
+ *
+ * <p>耗时较长的压缩与合并任务在单独的单线程调度器中执行，不会占用执行内存表写出、周期落盘等前台写入所依赖任务的线程。
+ * 压缩读写共用同一个限速器，因此无论有多少张表在压缩，总的压缩读写速率都不超过{@link TDConfig#getCompactionRateLimit()}。
+ *
+ * <p>通常由{@code TDManager}创建并在关闭时一并关闭；未指定调度器直接构造的表使用{@link #shared()}。
+ *
+ * @author agent on 2026/10/17 06:14
+ * @version 1.0
+ * @see Range#sweep()
+ * @since 1.0
+ */
+public class Housekeeper implements Closeable {
+
+    /** 未指定调度器的表共用的调度器 */
+    private static volatile Housekeeper shared;
+
+    /** 执行内存表写出、周期落盘及句柄清理等短任务的调度器 */
+    private final ScheduledExecutorService executor;
+    /** 执行压缩与合并等长任务的调度器 */
+    private final ScheduledExecutorService compactor;
+    /** 压缩读写限速器，不限速时为{@code null} */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * 创建后台维护任务调度器
+     *
+     * @param name                线程名称前缀
+     * @param threads             执行短任务的线程数
+     * @param compactionRateLimit 压缩读写速率上限，单位为字节每秒，不大于0时不限速
+     */
+    public Housekeeper(String name, int threads, long compactionRateLimit) {
+        executor = Executors.newScheduledThreadPool(threads, daemon(name));
+        compactor = Executors.newSingleThreadScheduledExecutor(daemon(name + "-compaction"));
+        rateLimiter = compactionRateLimit > 0 ? RateLimiter.create(compactionRateLimit) : null;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger index = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-%s", name, index.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 获取未指定调度器的表共用的调度器
+     *
+     * @return 共用调度器
+     */
+    static Housekeeper shared() {
+        if (null == shared) {
+            synchronized (Housekeeper.class) {
+                if (null == shared) {
+                    shared = new Housekeeper("trouble-housekeeper", 2, new TDConfig().getCompactionRateLimit());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 以固定间隔周期执行维护任务，任务抛出的异常不会中止后续执行
+     *
+     * @param task   维护任务
+     * @param period 执行间隔
+     * @param unit   间隔单位
+     * @return 可用于取消任务的句柄
+     */
+    ScheduledFuture<?> schedule(Runnable task, long period, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(guard(task), period, period, unit);
+    }
+
+    /**
+     * 以固定间隔周期执行压缩任务，与其它压缩及合并任务串行执行，任务抛出的异常不会中止后续执行
+     *
+     * @param task   压缩任务
+     * @param period 执行间隔
+     * @param unit   间隔单位
+     * @return 可用于取消任务的句柄
+     */
+    ScheduledFuture<?> scheduleCompaction(Runnable task, long period, TimeUnit unit) {
+        return compactor.scheduleWithFixedDelay(guard(task), period, period, unit);
+    }
+
+    /**
+     * 提交一次性执行的合并任务，与其它压缩及合并任务串行执行，任务抛出的异常不会影响调度器中的其它任务
+     *
+     * @param task 合并任务
+     * @return 可用于等待任务完成的句柄
+     */
+    Future<?> submitCompaction(Runnable task) {
+        return compactor.submit(guard(task));
+    }
+
+    /**
+     * 按共用的压缩限速器等待，直到允许读写指定字节数，不限速时立即返回
+     *
+     * @param bytes 将要读写的字节数
+     */
+    void throttle(int bytes) {
+        if (null != rateLimiter && bytes > 0) {
+            rateLimiter.acquire(bytes);
+        }
+    }
+
+    /**
+     * 提交一次性执行的维护任务，任务抛出的异常不会影响调度器中的其它任务
+     *
+     * @param task 维护任务
+     * @return 可用于等待任务完成的句柄
+     */
+    Future<?> submit(Runnable task) {
+        return executor.submit(guard(task));
+    }
+
+    /**
+     * 提交延迟一次性执行的维护任务，任务抛出的异常不会影响调度器中的其它任务
+     *
+     * @param task  维护任务
+     * @param delay 延迟时间
+     * @param unit  时间单位
+     * @return 可用于取消任务的句柄
+     */
+    ScheduledFuture<?> submit(Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(guard(task), delay, unit);
+    }
+
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        };
+    }
+
+    /**
+     * 取消所有维护任务并关闭调度器
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        compactor.shutdownNow();
+    }
+
+}
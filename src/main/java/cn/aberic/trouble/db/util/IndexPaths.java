@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单个磁盘表的索引文件目录注册表。
+ *
+ * <p>索引文件的目录结构为 <tt>unit/level/rangeLevelDegree/rangeDegree/nodeDegree.tdb</tt> ，
+ * 同一个结点范围对象中的所有结点共用一个目录，该目录由unit和 <tt>(storeHash - 1) / nodeArrayLength</tt> 唯一确定。
+ * 每个目录在首次访问时通过{@link Range#position}计算一次路径前缀并驻留于注册表中，之后同一目录下的key
+ * 只需在线程独享的缓冲区中拼接前缀与结点度即可得到索引文件路径，无需再次格式化路径或计算B-Tree位置。
+ *
+ * <p>目录只在首次写入时创建一次，之后的写入不再检查目录是否存在。
+ *
+ * @author agent on 2026/10/17 06:42
+ * @version 1.0
+ * @see TreeDiskMap
+ * @since 1.0
+ */
+class IndexPaths {
+
+    private static final String INDEX_END = ".tdb";
+    /** 线程独享的路径拼接缓冲区 */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    /** 索引文件根目录，以路径分隔符结尾 */
+    private final String root;
+    private final Range<?, ?> range;
+    private final int nodeArrayLength;
+    /** 已驻留的目录，key由unit及结点范围对象在B-Tree中的序号组成 */
+    private final ConcurrentHashMap<Long, Dir> dirs = new ConcurrentHashMap<>();
+
+    /**
+     * @param root  索引文件根目录
+     * @param range 用于计算目录位置的顶级结点范围对象
+     */
+    IndexPaths(String root, Range<?, ?> range) {
+        this.root = root + File.separator;
+        this.range = range;
+        this.nodeArrayLength = range.nodeArrayLength;
+    }
+
+    /**
+     * 获取索引文件完整路径及文件名
+     *
+     * @param unit      hash表的数组下标
+     * @param storeHash 真正执行存入操作的hash值
+     * @param create    是否确保索引文件所在目录已创建
+     * @return 索引文件完整路径及文件名
+     */
+    String path(int unit, int storeHash, boolean create) {
+        int ordinal = (storeHash - 1) / nodeArrayLength;
+        Dir dir = dirs.get(key(unit, ordinal));
+        if (null == dir) {
+            dir = dirs.computeIfAbsent(key(unit, ordinal), k -> dir(unit, storeHash));
+        }
+        if (create && !dir.created) {
+            dir.create();
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return buffer.append(dir.prefix).append(storeHash - ordinal * nodeArrayLength).append(INDEX_END).toString();
+    }
+
+    private static long key(int unit, int ordinal) {
+        return ((long) unit << 32) | (ordinal & 0xFFFFFFFFL);
+    }
+
+    private Dir dir(int unit, int storeHash) {
+        long position = range.position(storeHash);
+        return new Dir(root + unit + File.separator + Range.level(position) + File.separator
+                + range.rangeLevelDegree(position) + File.separator + range.rangeDegree(position) + File.separator);
+    }
+
+    /**
+     * 索引文件所在目录
+     */
+    private static class Dir {
+
+        /** 目录路径，以路径分隔符结尾 */
+        private final String prefix;
+        private volatile boolean created;
+
+        private Dir(String prefix) {
+            this.prefix = prefix;
+        }
+
+        private void create() {
+            File file = new File(prefix);
+            if (!file.mkdirs() && !file.isDirectory()) {
+                return;
+            }
+            created = true;
+        }
+
+    }
+
+}
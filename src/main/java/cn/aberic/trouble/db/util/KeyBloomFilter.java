@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按unit划分的布隆过滤器。
+ *
+ * <p>每一个unit对应一个以 <tt>storeHash</tt> 为元素的布隆过滤器，在首次写入该unit时创建。
+ * {@link #mightContain(int, int)}返回{@code false}时，该 <tt>(unit, storeHash)</tt> 一定未被写入，
+ * 调用方无需再访问文件系统；返回{@code true}时则可能误判，调用方仍需以磁盘上的数据为准。
+ *
+ * <p>布隆过滤器的写入是线程安全的，因此可以在并发磁盘表中直接使用。
+ *
+ * @author agent on 2026/10/17 06:09
+ * @version 1.0
+ * @see TreeDiskMap
+ * @since 1.0
+ */
+class KeyBloomFilter {
+
+    private final int expectedInsertions;
+    private final double fpp;
+    private final ConcurrentHashMap<Integer, BloomFilter<Integer>> units = new ConcurrentHashMap<>();
+
+    KeyBloomFilter(TDConfig config) {
+        this.expectedInsertions = config.getBloomExpectedInsertions();
+        this.fpp = config.getBloomFpp();
+    }
+
+    /**
+     * 指定的 <tt>(unit, storeHash)</tt> 是否可能已被写入
+     *
+     * @param unit      hash表的数组下标
+     * @param storeHash 真正执行存入操作的hash值
+     * @return 如果一定未被写入，则返回{@code false}
+     */
+    boolean mightContain(int unit, int storeHash) {
+        BloomFilter<Integer> filter = units.get(unit);
+        return null != filter && filter.mightContain(storeHash);
+    }
+
+    /**
+     * 记录指定的 <tt>(unit, storeHash)</tt> 已被写入
+     *
+     * @param unit      hash表的数组下标
+     * @param storeHash 真正执行存入操作的hash值
+     */
+    void put(int unit, int storeHash) {
+        units.computeIfAbsent(unit, u -> BloomFilter.create(Funnels.integerFunnel(), expectedInsertions, fpp))
+                .put(storeHash);
+    }
+
+}
@@ -0,0 +1,407 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以只追加段文件存储值的磁盘映射。
+ *
+ * <p>与{@link TreeDiskMap}为每一个值单独创建一个索引文件不同，{@code LogDiskMap}将所有值顺序追加写入滚动的段文件
+ * {@link LogSegment}中，并在内存中维护一份由 <tt>(unit, storeHash)</tt> 到 <tt>(段文件, 偏移, 长度)</tt> 的键目录，
+ * 因此每一次写入只是一次顺序追加，每一次读取只是一次定位读。
+ *
+ * <p>键目录在打开时通过顺序扫描所有段文件重建，后写入的记录覆盖先写入的记录。
+ *
+ * <p>被覆盖的记录计入其所在段文件的失效大小。{@link Housekeeper}的压缩线程周期调用{@link LogRange#compact(Housekeeper)}，
+ * 将失效记录占比达到{@link TDConfig#getCompactionGarbageRatio()}的已写满段文件中仍有效的记录，
+ * 按{@link Housekeeper#throttle(int)}限速顺序重写到一个新的段文件中，
+ * 新段文件落盘后原子地替换其中编号最大的段文件，随后删除其余被压缩的段文件。
+ * 有效记录是其键最新的记录，因此新段文件沿用被压缩段文件中的最大编号，重新打开时的覆盖顺序依然正确。
+ * 稳定状态下磁盘占用约为有效数据的 <tt>1 / (1 - garbageRatio)</tt> 倍，每一次读取始终只是一次定位读。
+ *
+ * @author agent on 2026/10/17 05:57
+ * @version 1.0
+ * @see HashDiskMap
+ * @see LogSegment
+ * @since 1.0
+ */
+class LogDiskMap<K, V> extends AbstractTreeMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = -3165029838826645011L;
+
+    /** 当前结点范围对象的根对象，祖宗结点 */
+    private LogRange<K, V> root;
+
+    LogDiskMap(String name, TDConfig config) {
+        root = new LogRange<>(name, config);
+    }
+
+    @Override
+    public Range<K, V> range() {
+        return root;
+    }
+
+    static class LogRange<K, V> extends Range<K, V> {
+
+        private TDConfig config;
+        private String name;
+        /** 键目录，由 <tt>(unit, storeHash)</tt> 映射到值所在段文件中的位置 */
+        private final ConcurrentHashMap<Long, Entry> keyDir = new ConcurrentHashMap<>();
+        /** 当前表所有段文件 */
+        private final ConcurrentHashMap<Integer, LogSegment> segments = new ConcurrentHashMap<>();
+        /** 当前追加写入的段文件 */
+        private volatile LogSegment active;
+        /** 压缩锁，关闭时据此等待进行中的压缩完成 */
+        private final Object compactionLock = new Object();
+        private volatile boolean closed;
+
+        LogRange(String name, TDConfig config) {
+            super(config.getTreeMaxLevel(), config.getNodeArrayLength());
+            this.name = name;
+            this.config = config;
+            try {
+                open();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * 顺序扫描所有段文件以重建键目录，并以编号最大的段文件作为当前追加写入的段文件
+         *
+         * @throws IOException 段文件读取失败
+         */
+        private void open() throws IOException {
+            File[] files = new File(TDConfig.storageLogDirPath(config.getDbPath(), name)).listFiles();
+            int[] ids = new int[0];
+            if (null != files) {
+                ids = Arrays.stream(files).mapToInt(file -> TDConfig.storageLogSegmentId(file.getName()))
+                        .filter(id -> id >= 0).sorted().toArray();
+                // 压缩中断时遗留的临时文件
+                Arrays.stream(files).filter(file -> file.getName().endsWith(".tmp")).forEach(File::delete);
+            }
+            for (int id : ids) {
+                LogSegment segment = segment(id);
+                segment.scan((unit, storeHash, offset, length) ->
+                        overwrite(keyDir.put(key(unit, storeHash), new Entry(segment, offset, length))));
+                segments.put(id, segment);
+                active = segment;
+            }
+            if (null == active) {
+                active = segment(0);
+                segments.put(0, active);
+            }
+        }
+
+        private LogSegment segment(int id) throws IOException {
+            return new LogSegment(id, new File(TDConfig.storageLogFilePath(config.getDbPath(), name, id)));
+        }
+
+        /**
+         * 当前段文件写满后，将其落盘并滚动生成新的段文件
+         *
+         * @throws IOException 段文件创建失败
+         */
+        private void roll() throws IOException {
+            active.force();
+            LogSegment segment = segment(active.id + 1);
+            segments.put(segment.id, segment);
+            active = segment;
+        }
+
+        /**
+         * 将被覆盖的记录计入其所在段文件的失效大小，调用方需持有当前对象的锁或处于打开阶段
+         *
+         * @param previous 被覆盖的键目录项，为{@code null}时忽略
+         */
+        private static void overwrite(Entry previous) {
+            if (null != previous) {
+                previous.segment.garbage += LogSegment.HEADER_LENGTH + previous.length;
+            }
+        }
+
+        /**
+         * 将 <tt>(unit, storeHash)</tt> 合并为键目录中的键
+         */
+        static long key(int unit, int storeHash) {
+            return ((long) unit << 32) | (storeHash & 0xFFFFFFFFL);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        boolean contains(int unit, int storeHash) {
+            return keyDir.containsKey(key(unit, storeHash));
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        V get(int unit, int storeHash, K key) {
+            long dirKey = key(unit, storeHash);
+            Entry entry = keyDir.get(dirKey);
+            while (null != entry) {
+                try {
+                    byte[] bytes = entry.segment.read(entry.offset, entry.length);
+                    return (V) config.getCodec().decode(bytes);
+                } catch (ClosedChannelException e) {
+                    // 段文件刚被压缩并关闭，键目录项已指向新的段文件
+                    Entry current = keyDir.get(dirKey);
+                    if (current == entry) {
+                        e.printStackTrace();
+                        return null;
+                    }
+                    entry = current;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        V put(int unit, int storeHash, K key, V value) {
+            byte[] bytes = config.getCodec().encode(value);
+            ByteBuffer record = LogSegment.record(unit, storeHash, bytes);
+            try {
+                synchronized (this) {
+                    if (active.size() > 0 && active.size() + record.remaining() > config.getSegmentMaxSize()) {
+                        roll();
+                    }
+                    long offset = active.append(record);
+                    overwrite(keyDir.put(key(unit, storeHash), new Entry(active, offset, bytes.length)));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            return value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void sync() {
+            try {
+                active.force();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>每次压缩所有失效记录占比达到阈值的已写满段文件。
+         */
+        @Override
+        void compact(Housekeeper housekeeper) {
+            synchronized (compactionLock) {
+                if (closed) {
+                    return;
+                }
+                List<LogSegment> candidates = new ArrayList<>();
+                synchronized (this) {
+                    for (LogSegment segment : segments.values()) {
+                        if (segment != active && segment.size() > 0
+                                && segment.garbage >= segment.size() * config.getCompactionGarbageRatio()) {
+                            candidates.add(segment);
+                        }
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    return;
+                }
+                try {
+                    compact(candidates, housekeeper);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * 将被压缩段文件中的有效记录重写到新的段文件中，并替换被压缩的段文件
+         *
+         * @param candidates  被压缩的段文件
+         * @param housekeeper 执行压缩的调度器
+         * @throws IOException 段文件读写失败
+         */
+        private void compact(List<LogSegment> candidates, Housekeeper housekeeper) throws IOException {
+            LogSegment last = candidates.stream().max(Comparator.comparingInt(segment -> segment.id)).get();
+            List<Live> live = new ArrayList<>();
+            keyDir.forEach((key, entry) -> {
+                if (candidates.contains(entry.segment)) {
+                    live.add(new Live(key, entry));
+                }
+            });
+            // 按段文件及偏移排列有效记录，使压缩时的读取尽量顺序
+            live.sort(Comparator.comparingInt((Live l) -> l.entry.segment.id).thenComparingLong(l -> l.entry.offset));
+            LogSegment output = null;
+            if (!live.isEmpty()) {
+                File tmp = new File(last.file.getPath() + ".tmp");
+                LogSegment writer = new LogSegment(last.id, tmp);
+                try {
+                    for (Live l : live) {
+                        if (closed) {
+                            writer.close();
+                            tmp.delete();
+                            return;
+                        }
+                        ByteBuffer record = LogSegment.record((int) (l.key >>> 32), (int) l.key,
+                                l.entry.segment.read(l.entry.offset, l.entry.length));
+                        // 读取与写入各计一次
+                        housekeeper.throttle(2 * record.remaining());
+                        l.offset = writer.append(record);
+                    }
+                    writer.force();
+                } finally {
+                    writer.close();
+                }
+                Files.move(tmp.toPath(), last.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                output = segment(last.id);
+            }
+            synchronized (this) {
+                for (Live l : live) {
+                    // 压缩期间被覆盖的记录在新段文件中同样失效
+                    if (!keyDir.replace(l.key, l.entry, new Entry(output, l.offset, l.entry.length))) {
+                        output.garbage += LogSegment.HEADER_LENGTH + l.entry.length;
+                    }
+                }
+                for (LogSegment segment : candidates) {
+                    segments.remove(segment.id, segment);
+                }
+                if (null != output) {
+                    segments.put(output.id, output);
+                }
+            }
+            for (LogSegment segment : candidates) {
+                segment.close();
+                // 编号最大的段文件已被新段文件替换
+                if (null == output || segment != last) {
+                    segment.file.delete();
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void close() {
+            closed = true;
+            synchronized (compactionLock) {
+                sync();
+                for (LogSegment segment : segments.values()) {
+                    try {
+                        segment.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * 压缩中的有效记录
+     *
+     * @author agent on 2026/10/17 06:51
+     * @version 1.0
+     * @see LogRange#compact(Housekeeper)
+     * @since 1.0
+     */
+    private static class Live {
+
+        /** 键目录中的键 */
+        final long key;
+        /** 压缩前的键目录项 */
+        final Entry entry;
+        /** 记录在新段文件中的起始位置 */
+        long offset;
+
+        Live(long key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+    }
+
+    /**
+     * 键目录项，记录值所在段文件中的位置
+     *
+     * @author agent on 2026/10/17 05:57
+     * @version 1.0
+     * @see LogRange
+     * @since 1.0
+     */
+    static class Entry {
+
+        /** 值所在段文件 */
+        final LogSegment segment;
+        /** 记录在段文件中的起始位置 */
+        final long offset;
+        /** 值长度 */
+        final int length;
+
+        Entry(LogSegment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import com.google.common.io.Files;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 只追加写入的段文件。
+ *
+ * <p>段文件由若干条记录顺序组成，每条记录的格式为：
+ * <pre>
+ * | crc(4) | unit(4) | storeHash(4) | length(4) | value(length) |
+ * </pre>
+ * 其中{@code crc}为记录中除自身外所有字节的CRC32校验值，用于在打开段文件时识别被截断或损坏的尾部记录。
+ *
+ * <p>写入操作由调用方保证串行，读取操作使用定位读，可与写入并发进行。
+ *
+ * @author agent on 2026/10/17 05:57
+ * @version 1.0
+ * @see LogDiskMap
+ * @since 1.0
+ */
+class LogSegment implements Closeable {
+
+    /** 记录头长度 */
+    static final int HEADER_LENGTH = 16;
+
+    /** 段文件编号 */
+    final int id;
+    /** 段文件 */
+    final File file;
+    private final FileChannel channel;
+    /** 当前段文件有效数据大小，即下一条记录的写入位置 */
+    private volatile long size;
+    /** 段文件中已被覆盖的记录大小，由调用方同步修改 */
+    long garbage;
+
+    LogSegment(int id, File file) throws IOException {
+        this.id = id;
+        this.file = file;
+        Files.createParentDirs(file);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.size = channel.size();
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * 组装一条待追加的记录
+     *
+     * @param unit      传入key当前Hash数组中要访问的下标
+     * @param storeHash 真正执行存入操作的hash值
+     * @param value     值字节
+     *
+     * @return 可直接写入段文件的记录
+     */
+    static ByteBuffer record(int unit, int storeHash, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + value.length);
+        buffer.putInt(0).putInt(unit).putInt(storeHash).putInt(value.length).put(value);
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), 4, buffer.capacity() - 4);
+        buffer.putInt(0, (int) crc32.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 将记录追加到段文件末尾
+     *
+     * @param record 由{@link #record(int, int, byte[])}组装的记录
+     *
+     * @return 记录在段文件中的起始位置
+     *
+     * @throws IOException 写入失败
+     */
+    long append(ByteBuffer record) throws IOException {
+        long offset = size;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        size = position;
+        return offset;
+    }
+
+    /**
+     * 读取记录中的值
+     *
+     * @param offset 记录在段文件中的起始位置
+     * @param length 值长度
+     *
+     * @return 值字节
+     *
+     * @throws IOException 读取失败
+     */
+    byte[] read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = offset + HEADER_LENGTH;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of segment " + file);
+            }
+            position += read;
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 顺序扫描段文件中的所有有效记录，遇到截断或校验失败的记录时停止，并将段文件截断到最后一条有效记录之后
+     *
+     * @param visitor 记录访问者
+     *
+     * @throws IOException 读取失败
+     */
+    void scan(RecordVisitor visitor) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        long position = 0;
+        long fileSize = channel.size();
+        CRC32 crc32 = new CRC32();
+        while (position + HEADER_LENGTH <= fileSize) {
+            header.clear();
+            channel.read(header, position);
+            int crc = header.getInt(0);
+            int unit = header.getInt(4);
+            int storeHash = header.getInt(8);
+            int length = header.getInt(12);
+            if (length < 0 || position + HEADER_LENGTH + length > fileSize) {
+                break;
+            }
+            ByteBuffer value = ByteBuffer.allocate(length);
+            channel.read(value, position + HEADER_LENGTH);
+            crc32.reset();
+            crc32.update(header.array(), 4, HEADER_LENGTH - 4);
+            crc32.update(value.array(), 0, length);
+            if ((int) crc32.getValue() != crc) {
+                break;
+            }
+            visitor.visit(unit, storeHash, position, length);
+            position += HEADER_LENGTH + length;
+        }
+        if (position < fileSize) {
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * 清空段文件中的所有记录
+     *
+     * @throws IOException 截断失败
+     */
+    void clear() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+        size = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** 段文件记录访问者 */
+    interface RecordVisitor {
+
+        /**
+         * 访问一条有效记录
+         *
+         * @param unit      传入key当前Hash数组中要访问的下标
+         * @param storeHash 真正执行存入操作的hash值
+         * @param offset    记录在段文件中的起始位置
+         * @param length    值长度
+         */
+        void visit(int unit, int storeHash, long offset, int length);
+
+    }
+
+}
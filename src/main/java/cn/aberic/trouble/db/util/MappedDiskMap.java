@@ -0,0 +1,584 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+import com.google.common.io.Files;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以内存映射定长槽位文件存储值位置的磁盘映射。
+ *
+ * <p>{@link Range#position(int)}为每一个key计算出确定的
+ * <tt>(unit, level, rangeLevelDegree, rangeDegree, nodeDegree)</tt>地址，
+ * {@code MappedDiskMap}将该地址换算为槽位下标，每一个unit对应一个通过{@link MappedByteBuffer}访问的槽位文件，
+ * 槽位中保存值在同unit值堆文件中的偏移与长度，值本身顺序追加写入值堆文件。
+ *
+ * <p>槽位为8字节，最高位为值所在值堆文件的代，其后39位为值在值堆文件中的偏移，低24位为值长度，槽位为0则表示不存在，
+ * 因此{@link #containsKey(int, int)}仅是一次映射内存的读取。
+ *
+ * <p>被覆盖的值计入其所在值堆文件的失效大小。{@link Housekeeper}的压缩线程周期调用{@link MappedRange#compact(Housekeeper)}，
+ * 对失效值占比达到{@link TDConfig#getCompactionGarbageRatio()}的unit，先将追加写入切换到另一代值堆文件，
+ * 再按{@link Housekeeper#throttle(int)}限速扫描槽位，将仍指向旧一代值堆文件的值分批迁移到新一代值堆文件中，
+ * 每批值落盘后才更新槽位，全部迁移完成并落盘槽位后删除旧一代值堆文件。
+ * 迁移期间每个槽位始终指向一份完整的值，因此读取无需加锁，压缩中断后重新打开时两代值堆文件同时存在也依然正确。
+ *
+ * @author agent on 2026/10/17 05:58
+ * @version 1.0
+ * @see HashDiskMap
+ * @since 1.0
+ */
+class MappedDiskMap<K, V> extends AbstractTreeMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = 3512846190213476672L;
+
+    /** 当前结点范围对象的根对象，祖宗结点 */
+    private MappedRange<K, V> root;
+
+    MappedDiskMap(String name, TDConfig config) {
+        root = new MappedRange<>(name, config);
+    }
+
+    @Override
+    public Range<K, V> range() {
+        return root;
+    }
+
+    static class MappedRange<K, V> extends Range<K, V> {
+
+        /** 槽位字节长度 */
+        private static final int SLOT_LENGTH = 8;
+        /** 槽位中值长度所占位数 */
+        private static final int LENGTH_BITS = 24;
+        /** 单个值允许的最大长度 */
+        private static final int MAX_VALUE_LENGTH = (1 << LENGTH_BITS) - 1;
+        /** 槽位中值堆文件的代所在位 */
+        private static final int GENERATION_BIT = 63;
+        /** 值在值堆文件中允许的最大偏移 */
+        private static final long MAX_HEAP_OFFSET = (1L << (GENERATION_BIT - LENGTH_BITS)) - 1;
+        /** 压缩时每批迁移的值大小，每批落盘后才更新槽位 */
+        private static final int COMPACTION_BATCH_BYTES = 1024 * 1024;
+
+        private TDConfig config;
+        private String name;
+        /** 已打开的unit映射文件 */
+        private final ConcurrentHashMap<Integer, Unit> units = new ConcurrentHashMap<>();
+        /** 压缩锁，关闭时据此等待进行中的压缩完成 */
+        private final Object compactionLock = new Object();
+        private volatile boolean closed;
+
+        MappedRange(String name, TDConfig config) {
+            super(config.getTreeMaxLevel(), config.getNodeArrayLength());
+            if ((long) treeMaxLength * SLOT_LENGTH > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("tree is too large to be mapped, treeMaxLength = " + treeMaxLength);
+            }
+            this.name = name;
+            this.config = config;
+        }
+
+        /**
+         * 将结点在B-Tree中的地址换算为槽位下标
+         *
+         * @param storeHash 真正执行存入操作的hash值
+         * @return 槽位下标
+         */
+        private int slot(int storeHash) {
+            long position = position(storeHash);
+            return levelStartIndex(level(position)) + (rangeLevelDegree(position) - 1) * nodeArrayLength
+                    + nodeDegree(position) - 1;
+        }
+
+        static long slot(int generation, long offset, int length) {
+            return ((long) generation << GENERATION_BIT) | (offset << LENGTH_BITS) | length;
+        }
+
+        static int generation(long slot) {
+            return (int) (slot >>> GENERATION_BIT);
+        }
+
+        static long offset(long slot) {
+            return (slot >>> LENGTH_BITS) & MAX_HEAP_OFFSET;
+        }
+
+        static int length(long slot) {
+            return (int) (slot & MAX_VALUE_LENGTH);
+        }
+
+        /**
+         * 获取unit对应的映射文件
+         *
+         * @param unit   hash表的数组下标
+         * @param create 不存在时是否创建
+         * @return unit对应的映射文件，如果不存在且不要求创建，则返回{@code null}
+         */
+        private Unit unit(int unit, boolean create) {
+            Unit u = units.get(unit);
+            if (null != u) {
+                return u;
+            }
+            if (!create && !new File(TDConfig.storageMappedSlotFilePath(config.getDbPath(), name, unit)).exists()) {
+                return null;
+            }
+            return units.computeIfAbsent(unit, i -> {
+                try {
+                    return new Unit(new File(TDConfig.storageMappedSlotFilePath(config.getDbPath(), name, i)),
+                            new File[]{
+                                    new File(TDConfig.storageMappedHeapFilePath(config.getDbPath(), name, i, 0)),
+                                    new File(TDConfig.storageMappedHeapFilePath(config.getDbPath(), name, i, 1))},
+                            treeMaxLength * SLOT_LENGTH);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        boolean contains(int unit, int storeHash) {
+            Unit u = unit(unit, false);
+            return null != u && u.slots.getLong(slot(storeHash) * SLOT_LENGTH) != 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        V get(int unit, int storeHash, K key) {
+            Unit u = unit(unit, false);
+            if (null == u) {
+                return null;
+            }
+            try {
+                byte[] bytes = u.get(slot(storeHash) * SLOT_LENGTH);
+                return null == bytes ? null : (V) config.getCodec().decode(bytes);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        V put(int unit, int storeHash, K key, V value) {
+            byte[] bytes = config.getCodec().encode(value);
+            if (bytes.length > MAX_VALUE_LENGTH) {
+                throw new IllegalArgumentException("value is too large to be mapped, length = " + bytes.length);
+            }
+            try {
+                unit(unit, true).put(slot(storeHash) * SLOT_LENGTH, bytes);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            return value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void sync() {
+            for (Unit unit : units.values()) {
+                try {
+                    unit.force();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>每次压缩所有失效值占比达到阈值的unit，以及上次压缩未完成、两代值堆文件同时存在的unit。
+         */
+        @Override
+        void compact(Housekeeper housekeeper) {
+            synchronized (compactionLock) {
+                for (Unit unit : units.values()) {
+                    if (closed) {
+                        return;
+                    }
+                    if (!unit.needsCompaction(config.getCompactionGarbageRatio())) {
+                        continue;
+                    }
+                    try {
+                        compact(unit, housekeeper);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 将追加写入切换到另一代值堆文件，并将仍指向当前一代值堆文件的值迁移过去，完成后删除当前一代值堆文件
+         *
+         * @param unit        被压缩的unit
+         * @param housekeeper 执行压缩的调度器
+         * @throws IOException 值堆文件或槽位文件读写失败
+         */
+        private void compact(Unit unit, Housekeeper housekeeper) throws IOException {
+            int from = unit.switchGeneration();
+            int[] indexes = new int[64];
+            long[] slots = new long[64];
+            int count = 0;
+            ByteArrayOutputStream values = new ByteArrayOutputStream();
+            for (int index = 0; index < treeMaxLength * SLOT_LENGTH; index += SLOT_LENGTH) {
+                if (closed) {
+                    // 余下的值仍在旧一代值堆文件中，重新打开后的压缩会继续迁移
+                    return;
+                }
+                long slot = unit.slots.getLong(index);
+                if (slot == 0 || generation(slot) != from) {
+                    continue;
+                }
+                byte[] bytes = unit.read(slot);
+                // 读取与写入各计一次
+                housekeeper.throttle(2 * bytes.length);
+                if (count == indexes.length) {
+                    indexes = Arrays.copyOf(indexes, count << 1);
+                    slots = Arrays.copyOf(slots, count << 1);
+                }
+                indexes[count] = index;
+                slots[count] = slot;
+                count++;
+                values.write(bytes, 0, bytes.length);
+                if (values.size() >= COMPACTION_BATCH_BYTES) {
+                    unit.migrate(indexes, slots, count, values.toByteArray());
+                    count = 0;
+                    values.reset();
+                }
+            }
+            if (count > 0) {
+                unit.migrate(indexes, slots, count, values.toByteArray());
+            }
+            unit.retire(from);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void close() {
+            closed = true;
+            synchronized (compactionLock) {
+                for (Unit unit : units.values()) {
+                    try {
+                        unit.force();
+                        unit.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * 单个unit的槽位映射文件与两代值堆文件，平时只有一代值堆文件存在，压缩期间值从旧一代迁移到新一代
+     *
+     * @author agent on 2026/10/17 05:58
+     * @version 1.0
+     * @see MappedRange
+     * @since 1.0
+     */
+    static class Unit implements Closeable {
+
+        /** 槽位文件映射 */
+        final MappedByteBuffer slots;
+        private final FileChannel slotChannel;
+        /** 两代值堆文件 */
+        private final File[] heapFiles;
+        /** 两代值堆文件句柄，不存在的一代为{@code null}，变更时整体替换数组，读取方据此判断句柄是否已被替换 */
+        private volatile FileChannel[] heaps;
+        /** 两代值堆文件当前大小，即下一个值的写入位置 */
+        private final long[] heapSizes = new long[2];
+        /** 两代值堆文件中已被覆盖的值大小 */
+        private final long[] garbage = new long[2];
+        /** 当前追加写入的值堆文件的代 */
+        private int active;
+
+        Unit(File slotFile, File[] heapFiles, int slotsLength) throws IOException {
+            Files.createParentDirs(slotFile);
+            slotChannel = FileChannel.open(slotFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, slotsLength);
+            this.heapFiles = heapFiles;
+            long[] live = new long[2];
+            for (int index = 0; index < slotsLength; index += MappedRange.SLOT_LENGTH) {
+                long slot = slots.getLong(index);
+                if (slot != 0) {
+                    live[MappedRange.generation(slot)] += MappedRange.length(slot);
+                }
+            }
+            // 压缩完成但尚未删除旧一代值堆文件时，不再被任何槽位引用的一代可直接删除
+            if (heapFiles[0].exists() && heapFiles[1].exists()) {
+                if (live[1] == 0) {
+                    heapFiles[1].delete();
+                } else if (live[0] == 0) {
+                    heapFiles[0].delete();
+                }
+            }
+            active = heapFiles[1].exists() && !heapFiles[0].exists() ? 1 : 0;
+            heaps = new FileChannel[2];
+            open(active);
+            if (heapFiles[1 - active].exists()) {
+                open(1 - active);
+            }
+            for (int generation = 0; generation < 2; generation++) {
+                garbage[generation] = Math.max(0, heapSizes[generation] - live[generation]);
+            }
+        }
+
+        private void open(int generation) throws IOException {
+            FileChannel channel = FileChannel.open(heapFiles[generation].toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            heapSizes[generation] = channel.size();
+            FileChannel[] channels = heaps.clone();
+            channels[generation] = channel;
+            heaps = channels;
+        }
+
+        /**
+         * 读取槽位指向的值
+         *
+         * @param index 槽位在槽位文件中的偏移
+         * @return 值字节，槽位为空时返回{@code null}
+         * @throws IOException 读取失败
+         */
+        byte[] get(int index) throws IOException {
+            while (true) {
+                // 先取句柄再读槽位，读取时句柄仍未关闭则槽位指向的必然是该句柄对应的文件
+                FileChannel[] channels = heaps;
+                long slot = slots.getLong(index);
+                if (slot == 0) {
+                    return null;
+                }
+                FileChannel heap = channels[MappedRange.generation(slot)];
+                try {
+                    if (null == heap) {
+                        throw new IOException("missing heap generation " + MappedRange.generation(slot));
+                    }
+                    return read(heap, MappedRange.offset(slot), MappedRange.length(slot));
+                } catch (IOException e) {
+                    // 旧一代值堆文件已在压缩完成后关闭，句柄被替换时重新读取槽位
+                    if (channels == heaps) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 将值追加到当前一代值堆文件末尾，并将槽位指向该值
+         *
+         * @param index 槽位在槽位文件中的偏移
+         * @param bytes 值字节
+         * @throws IOException 写入失败
+         */
+        synchronized void put(int index, byte[] bytes) throws IOException {
+            long old = slots.getLong(index);
+            long offset = append(active, bytes, bytes.length);
+            slots.putLong(index, MappedRange.slot(active, offset, bytes.length));
+            if (old != 0) {
+                garbage[MappedRange.generation(old)] += MappedRange.length(old);
+            }
+        }
+
+        /**
+         * 将值追加到指定一代值堆文件末尾，由调用方保证串行
+         *
+         * @param generation 值堆文件的代
+         * @param bytes      值字节
+         * @param length     值长度
+         * @return 值在值堆文件中的偏移
+         * @throws IOException 写入失败
+         */
+        private long append(int generation, byte[] bytes, int length) throws IOException {
+            long offset = heapSizes[generation];
+            if (offset + length > MappedRange.MAX_HEAP_OFFSET) {
+                throw new IOException("heap is too large to be mapped, size = " + offset);
+            }
+            FileChannel heap = heaps[generation];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += heap.write(buffer, position);
+            }
+            heapSizes[generation] = position;
+            return offset;
+        }
+
+        /**
+         * 读取旧一代值堆文件中的值，仅在压缩期间调用，此时旧一代值堆文件不会被关闭
+         *
+         * @param slot 指向旧一代值堆文件的槽位
+         * @return 值字节
+         * @throws IOException 读取失败
+         */
+        byte[] read(long slot) throws IOException {
+            return read(heaps[MappedRange.generation(slot)], MappedRange.offset(slot), MappedRange.length(slot));
+        }
+
+        private static byte[] read(FileChannel heap, long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int read = heap.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("unexpected end of heap");
+                }
+                position += read;
+            }
+            return buffer.array();
+        }
+
+        /**
+         * 是否需要压缩
+         *
+         * @param garbageRatio 失效值占比阈值
+         * @return 失效值占比达到阈值或两代值堆文件同时存在时返回{@code true}
+         */
+        synchronized boolean needsCompaction(double garbageRatio) {
+            long size = heapSizes[0] + heapSizes[1];
+            return (size > 0 && garbage[0] + garbage[1] >= size * garbageRatio) || null != heaps[1 - active];
+        }
+
+        /**
+         * 将追加写入切换到另一代值堆文件，另一代值堆文件已存在时继续追加
+         *
+         * @return 切换前的代
+         * @throws IOException 值堆文件打开失败
+         */
+        synchronized int switchGeneration() throws IOException {
+            int from = active;
+            if (null == heaps[1 - from]) {
+                open(1 - from);
+            }
+            active = 1 - from;
+            return from;
+        }
+
+        /**
+         * 将一批值追加到当前一代值堆文件，落盘后将仍未被覆盖的槽位指向新位置
+         *
+         * @param indexes 槽位在槽位文件中的偏移
+         * @param olds    迁移前的槽位
+         * @param count   值数量
+         * @param values  按顺序拼接的值字节
+         * @throws IOException 写入失败
+         */
+        void migrate(int[] indexes, long[] olds, int count, byte[] values) throws IOException {
+            int generation;
+            long offset;
+            synchronized (this) {
+                generation = active;
+                offset = append(generation, values, values.length);
+            }
+            // 槽位映射可能随时被写回磁盘，因此值必须先于槽位落盘
+            heaps[generation].force(false);
+            synchronized (this) {
+                for (int i = 0; i < count; i++) {
+                    int length = MappedRange.length(olds[i]);
+                    // 迁移期间被覆盖的值在新一代值堆文件中同样失效
+                    if (slots.getLong(indexes[i]) == olds[i]) {
+                        slots.putLong(indexes[i], MappedRange.slot(generation, offset, length));
+                    } else {
+                        garbage[generation] += length;
+                    }
+                    offset += length;
+                }
+            }
+        }
+
+        /**
+         * 所有值迁移完成后删除旧一代值堆文件
+         *
+         * @param generation 旧一代值堆文件的代
+         * @throws IOException 落盘或关闭失败
+         */
+        void retire(int generation) throws IOException {
+            FileChannel heap;
+            synchronized (this) {
+                heap = heaps[generation];
+                FileChannel[] channels = heaps.clone();
+                channels[generation] = null;
+                heaps = channels;
+                heapSizes[generation] = 0;
+                garbage[generation] = 0;
+            }
+            // 槽位全部指向新一代值堆文件并落盘后才能删除旧一代值堆文件
+            slots.force();
+            heap.close();
+            heapFiles[generation].delete();
+        }
+
+        void force() throws IOException {
+            for (FileChannel heap : heaps) {
+                if (null != heap) {
+                    heap.force(false);
+                }
+            }
+            slots.force();
+        }
+
+        @Override
+        public void close() throws IOException {
+            slots.force();
+            for (FileChannel heap : heaps) {
+                if (null != heap) {
+                    heap.close();
+                }
+            }
+            slotChannel.close();
+        }
+
+    }
+
+}
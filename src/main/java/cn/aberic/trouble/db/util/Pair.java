@@ -24,8 +24,6 @@
 
 package cn.aberic.trouble.db.util;
 
-import java.util.Arrays;
-
 /**
  * @author Aberic on 2018/10/12 01:21
  * @see ClassLoader#defineClass(byte[], int, int)
@@ -42,8 +40,8 @@ class Pair {
 //    final static int TREE_MAX_LENGTH = 1030300;
 //    /** B-Tree的最大度，即结点范围结点拥有子树的数目 - y */
 //    private final static int TREE_MAX_DEGREE = NODE_ARRAY_LENGTH + 1;
-    /** 每一层的末尾终结位置 */
-    private static int[] levelEveryRangeLastIndexArray;
+    /** 当前B-Tree共享的几何参数及寻址表 */
+    final TreeGeometry geometry;
     /** 当前结点范围对象所在B-Tree的层（节点默认值=4） - m */
     int levelNow;
 
@@ -57,20 +55,32 @@ class Pair {
     int treeMaxDegree;
 
     Pair(int treeMaxLevel, int nodeArrayLength) {
-        this.treeMaxLevel = treeMaxLevel > 0 ? treeMaxLevel : TREE_MAX_LEVEL;
-        this.nodeArrayLength = nodeArrayLength > 0 ? nodeArrayLength : NODE_ARRAY_LENGTH;
-        treeMaxDegree = this.nodeArrayLength + 1;
-        initLevelEveryRangeLastIndex();
-        treeMaxLength = levelEveryRangeLastIndexArray[this.treeMaxLevel];
+        geometry = TreeGeometry.of(treeMaxLevel > 0 ? treeMaxLevel : TREE_MAX_LEVEL,
+                nodeArrayLength > 0 ? nodeArrayLength : NODE_ARRAY_LENGTH);
+        this.treeMaxLevel = geometry.treeMaxLevel;
+        this.nodeArrayLength = geometry.nodeArrayLength;
+        treeMaxDegree = geometry.treeMaxDegree;
+        treeMaxLength = geometry.treeMaxLength;
     }
 
-    private void initLevelEveryRangeLastIndex() {
-        levelEveryRangeLastIndexArray = new int[treeMaxLevel + 1];
-        levelEveryRangeLastIndexArray[0] = 0;
-        for (int i = 1; i <= treeMaxLevel; i++) {
-            levelEveryRangeLastIndexArray[i] = nodeArrayLength * (int) Math.pow(treeMaxDegree, i - 1) + levelEveryRangeLastIndexArray[i - 1];
-        }
-        System.out.println("levelEveryRangeLastIndexArray = " + Arrays.toString(levelEveryRangeLastIndexArray));
+    /**
+     * 获取指定层中首个结点在整棵B-Tree所有结点中的顺序下标，即该层之上所有层的结点总数
+     *
+     * @param level 结点范围对象所在B-Tree的层 - m
+     * @return 该层首个结点的顺序下标
+     */
+    int levelStartIndex(int level) {
+        return geometry.levelLastIndex(treeMaxLevel - level);
+    }
+
+    /**
+     * 获取B-Tree最大度的指定次幂，即y^exponent，指数为负时返回0
+     *
+     * @param exponent 指数
+     * @return y^exponent
+     */
+    final int degreePower(int exponent) {
+        return geometry.degreePower(exponent);
     }
 
     int real(int storeHash) {
@@ -86,12 +96,7 @@ class Pair {
      * @return 所在层
      */
     int calculateLevelNow(int key) {
-        for (int i = 0; i < treeMaxLevel; i++) {
-            if (key > levelEveryRangeLastIndexArray[i] && key <= levelEveryRangeLastIndexArray[i + 1]) {
-                return treeMaxLevel - i;
-            }
-        }
-        throw new RuntimeException();
+        return geometry.level(key);
     }
 
     /**
@@ -102,12 +107,13 @@ class Pair {
      * @return 顺序位置
      */
     int calculateDegreeForOneLevelNow(int key, int levelNow) {
-        if ((key - levelEveryRangeLastIndexArray[this.levelNow - levelNow]) % nodeArrayLength == 0) {
+        int offset = key - geometry.levelLastIndex(this.levelNow - levelNow);
+        if (offset % nodeArrayLength == 0) {
             // v = (int - x(y^?))/x - 1(?)
-            return (key - levelEveryRangeLastIndexArray[this.levelNow - levelNow]) / nodeArrayLength;
+            return offset / nodeArrayLength;
         }
         // v = (int - x(y^?))/x - 1(?)
-        return (key - levelEveryRangeLastIndexArray[this.levelNow - levelNow]) / nodeArrayLength + 1;
+        return offset / nodeArrayLength + 1;
     }
 
     /**
@@ -120,7 +126,7 @@ class Pair {
      */
     int calculateReal(int key, int m, int v) {
         // real = (y^(m-1))int -(y^(m-1))(y^(n-m) - v)
-        return (int) (Math.pow(treeMaxDegree, m - 1) * (key + v - Math.pow(treeMaxDegree, treeMaxLevel - m)));
+        return (int) ((long) degreePower(m - 1) * (key + v - degreePower(treeMaxLevel - m)));
     }
 
 }
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+/**
+ * 以非负 <tt>int</tt> 为键、以基本类型为值的内存映射的公共部分。
+ *
+ * <p>键 <tt>k</tt> 直接换算为hash值 <tt>k + 1</tt> ，再按{@link AbstractHashMap}相同的方式拆分为
+ * <tt>(unit, storeHash)</tt> ，每一个unit对应一棵由{@link PrimitiveRange}构成的B-Tree，在首次写入该unit时创建。
+ * 由于键与 <tt>(unit, storeHash)</tt> 一一对应，结点中无需保存键。
+ *
+ * <p>该映射不是线程安全的。
+ *
+ * @author agent on 2026/10/17 06:20
+ * @version 1.0
+ * @see HashIntMemoryMap
+ * @see HashLongMemoryMap
+ * @since 1.0
+ */
+abstract class PrimitiveMemoryMap<R extends PrimitiveRange<R>> {
+
+    /** 当前B-Tree共享的几何参数及寻址表 */
+    final TreeGeometry geometry;
+    /** 每一个unit对应的B-Tree根结点范围对象 */
+    private final UnitDirectory<R> roots;
+    /** 当前映射中的键数量 */
+    int size;
+
+    PrimitiveMemoryMap(TDConfig config) {
+        Pair pair = new Pair(config.getTreeMaxLevel(), config.getNodeArrayLength());
+        geometry = pair.geometry;
+        roots = new UnitDirectory<>(geometry.treeMaxLength);
+    }
+
+    /**
+     * 创建指定层的结点范围对象
+     *
+     * @param levelNow 结点范围对象所在的层
+     * @return 结点范围对象
+     */
+    abstract R newRange(int levelNow);
+
+    /**
+     * 键在所属B-Tree中真正执行存入操作的hash值
+     */
+    final int storeHash(int key) {
+        return key % geometry.treeMaxLength + 1;
+    }
+
+    /**
+     * 定位键所在的结点范围对象
+     *
+     * @param key    键
+     * @param create 缺失时是否创建
+     * @return 所在的结点范围对象，缺失且不要求创建时返回{@code null}
+     */
+    final R range(int key, boolean create) {
+        if (key < 0) {
+            throw new IllegalArgumentException("key must not be negative, but was " + key);
+        }
+        int unit = key / geometry.treeMaxLength;
+        R root = roots.get(unit);
+        if (null == root) {
+            if (!create) {
+                return null;
+            }
+            root = roots.putIfAbsent(unit, newRange(geometry.treeMaxLevel));
+        }
+        return root.locate(storeHash(key), create);
+    }
+
+    /**
+     * 如果此映射包含指定键，则返回 <tt>true</tt>
+     *
+     * @param key 键
+     * @return 如果此映射包含指定键，则返回 <tt>true</tt>
+     */
+    public boolean containsKey(int key) {
+        R range = range(key, false);
+        return null != range && range.isPresent(range.nodeIndex(storeHash(key)));
+    }
+
+    /**
+     * 返回此映射中的键数量
+     *
+     * @return 键数量
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+}
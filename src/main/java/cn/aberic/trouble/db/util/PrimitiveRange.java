@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+/**
+ * 以基本类型数组存放值的结点范围对象。
+ *
+ * <p>与{@link Range}按相同的B-Tree寻址，但每一个结点范围对象只持有一个值数组及一个标记结点是否存在的位图，
+ * 不为结点创建对象，也不装箱键和值。值数组由子类按值类型定义。
+ *
+ * @author agent on 2026/10/17 06:20
+ * @version 1.0
+ * @see PrimitiveMemoryMap
+ * @since 1.0
+ */
+abstract class PrimitiveRange<R extends PrimitiveRange<R>> {
+
+    /** 当前B-Tree共享的几何参数及寻址表 */
+    final TreeGeometry geometry;
+    /** 当前结点范围对象所在B-Tree的层 - m */
+    final int levelNow;
+    /** 结点是否存在的位图 */
+    private final long[] present;
+    /** 当前结点范围的子对象数组，叶子层为{@code null} */
+    private final PrimitiveRange<?>[] children;
+
+    PrimitiveRange(TreeGeometry geometry, int levelNow) {
+        this.geometry = geometry;
+        this.levelNow = levelNow;
+        present = new long[(geometry.nodeArrayLength + 63) >>> 6];
+        children = levelNow > 1 ? new PrimitiveRange<?>[geometry.treeMaxDegree] : null;
+    }
+
+    /**
+     * 创建指定层的子结点范围对象
+     *
+     * @param levelNow 子结点范围对象所在的层
+     * @return 子结点范围对象
+     */
+    abstract R newRange(int levelNow);
+
+    /**
+     * 自当前根结点范围对象起，定位 <tt>storeHash</tt> 所在的结点范围对象
+     *
+     * @param storeHash 真正执行存入操作的hash值
+     * @param create    缺失时是否创建
+     * @return 所在的结点范围对象，缺失且不要求创建时返回{@code null}
+     */
+    @SuppressWarnings("unchecked")
+    final R locate(int storeHash, boolean create) {
+        int m = geometry.level(storeHash);
+        int v = (geometry.offsetInLevel(storeHash, m) - 1) / geometry.nodeArrayLength + 1;
+        PrimitiveRange<?> p = this;
+        // 自上而下逐层定位，第m层之上第k层父结点范围对象在整层度中的顺序位置为(v - 1) / y^k + 1
+        for (int k = geometry.treeMaxLevel - m - 1; k >= 0; k--) {
+            int index = geometry.modDegreePower(geometry.divideByDegreePower(v - 1, k), 1);
+            PrimitiveRange<?> c = p.children[index];
+            if (null == c) {
+                if (!create) {
+                    return null;
+                }
+                c = p.newRange(p.levelNow - 1);
+                p.children[index] = c;
+            }
+            p = c;
+        }
+        return (R) p;
+    }
+
+    /**
+     * 计算 <tt>storeHash</tt> 在所在结点范围对象中的结点下标
+     *
+     * @param storeHash 真正执行存入操作的hash值
+     * @return 结点下标
+     */
+    final int nodeIndex(int storeHash) {
+        return (geometry.offsetInLevel(storeHash, geometry.level(storeHash)) - 1) % geometry.nodeArrayLength;
+    }
+
+    final boolean isPresent(int index) {
+        return (present[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * 标记结点存在
+     *
+     * @param index 结点下标
+     * @return 标记前结点是否已存在
+     */
+    final boolean markPresent(int index) {
+        long bit = 1L << index;
+        boolean was = (present[index >>> 6] & bit) != 0;
+        present[index >>> 6] |= bit;
+        return was;
+    }
+
+}
@@ -25,19 +25,10 @@
 package cn.aberic.trouble.db.util;
 
 import cn.aberic.trouble.db.core.TDConfig;
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.TypeReference;
-import com.google.common.io.Files;
-import org.apache.commons.lang3.StringUtils;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * B-tree的层对象。
@@ -55,14 +46,12 @@ abstract class Range<K, V> extends Pair {
     private int keyIndexInNode = 0;
     /** 当前结点范围对象在整层度中的顺序位置 - v */
     private int degreeForOneLevelNow = 1;
-    /** y^(m-1) */
-    private int yPowM1;
     /** 结点数组首个对象下必须对应的数字 */
     private int firstNodeNum;
-    /** 结点数组，不可扩容 */
-    Map.RangePair<K, V>[] nodes;
-    /** 当前结点范围的子对象数组，不可扩容 */
-    Range<K, V>[] nodeChildrenRanges;
+    /** 结点数组，首次写入时创建，按位图稀疏存放 */
+    SparseSlots<Map.RangePair<K, V>> nodes;
+    /** 当前结点范围的子对象数组，首次写入时创建，按位图稀疏存放 */
+    SparseSlots<Range<K, V>> nodeChildrenRanges;
 
     /**
      * 指定范围对象中的所属子结点数组大小进行构造，构造结果为顶级/虚结点范围对象
@@ -80,6 +69,7 @@ abstract class Range<K, V> extends Pair {
 
     Range(int treeMaxLevel, int nodeArrayLength) {
         this(-1, 0, 1, treeMaxLevel, nodeArrayLength);
+        unsynced = ConcurrentHashMap.newKeySet();
     }
 
     /**
@@ -101,43 +91,61 @@ abstract class Range<K, V> extends Pair {
      *
      * @param levelNow 结点范围对象被指定的层
      */
-    @SuppressWarnings("unchecked")
     private void init(int levelNow) {
         this.levelNow = levelNow == -1 ? treeMaxLevel : levelNow;
-        this.yPowM1 = (int) Math.pow(treeMaxDegree, this.levelNow - 1);
-        // B-Tree的最大度/子range集合的数量必为结点集合的大小+1
-        nodeChildrenRanges = new Range[treeMaxDegree];
-        // 结点数组根据设定执行初始化
-        nodes = new Map.RangePair[nodeArrayLength];
         // real = (1 + z)(y^(m - 1)) + (v - 1)(y^m)
-        firstNodeNum = (1 + keyIndexInNode) * yPowM1 + (degreeForOneLevelNow - 1) * (int) Math.pow(treeMaxDegree, this.levelNow);
+        firstNodeNum = (1 + keyIndexInNode) * degreePower(this.levelNow - 1) + (degreeForOneLevelNow - 1) * degreePower(this.levelNow);
 //            System.out.println("firstNodeNum = " + firstNodeNum);
-        Thread storageThread = new Thread(new StorageThread());
-        storageThread.start();
     }
 
     /**
-     * 获取不可扩容的结点数组，并非强制重写。
+     * 获取结点数组中指定下标的结点，并非强制重写。
      * 如果要使用{@link Range}自身的{@link Range#contains(int, int)}和{@link Range#get(int, int, Object)}方法，则必须重写。
      * 否则，重写{@link Range#contains(int, int)}和{@link Range#get(int, int, Object)}方法以完善子类信息。
      *
-     * @return 不可扩容的结点数组
+     * @param index 结点在结点数组中的下标
+     * @return 结点，如果不存在则返回{@code null}
      */
-    Map.RangePair<K, V>[] nodes() {
+    Map.RangePair<K, V> node(int index) {
         return null;
     }
 
     /**
-     * 获取不可扩容的结点范围的子对象数组，并非强制重写。
+     * 获取结点范围的子对象数组中指定下标的子结点范围对象，并非强制重写。
      * 如果要使用{@link Range}自身的{@link Range#contains(int, int)}和{@link Range#get(int, int, Object)}方法，则必须重写。
      * 否则，重写{@link Range#contains(int, int)}和{@link Range#get(int, int, Object)}方法以完善子类信息。
      *
-     * @return 不可扩容的结点范围的子对象数组
+     * @param index 子结点范围对象在子对象数组中的下标
+     * @return 子结点范围对象，如果不存在则返回{@code null}
      */
-    Range<K, V>[] nodeChildrenRanges() {
+    Range<K, V> childRange(int index) {
         return null;
     }
 
+    /**
+     * 结点数组中指定下标是否存在结点，并非强制重写。
+     * 默认实现由{@link #node(int)}判断，结点不存放于结点数组中的子类需重写。
+     *
+     * @param index 结点在结点数组中的下标
+     * @return 存在结点时返回{@code true}
+     */
+    boolean hasNode(int index) {
+        return null != node(index);
+    }
+
+    /**
+     * 读取结点数组中指定下标的结点中指定键对应的值，并非强制重写。
+     * 默认实现由{@link #node(int)}取得的结点读取，结点不存放于结点数组中的子类需重写。
+     *
+     * @param index 结点在结点数组中的下标
+     * @param key   键
+     * @return 值，不存在时返回{@code null}
+     */
+    V value(int index, K key) {
+        Map.RangePair<K, V> node = node(index);
+        return null != node ? node.getValue(key) : null;
+    }
+
     /**
      * 如果Range包含指定的元素，则返回 true。
      * 更确切地讲，当且仅当Range包含满足 <tt>(key==null ? e==null : key.equals(e))</tt> 的元素 <tt>e</tt> 时返回 <tt>true</tt> 。
@@ -158,16 +166,15 @@ abstract class Range<K, V> extends Pair {
         if (gap < 0) { // 为子范围集合中首个
             index = 0;
         } else {
-            int yPowM1 = range.yPowM1;
-            index = gap / yPowM1;
-            if (gap % yPowM1 == 0) { // 为子结点集合其中之一
-                Map.RangePair<K, V> node = nodes()[index];
-                return null != node;
+            int exponent = range.levelNow - 1;
+            index = geometry.divideByDegreePower(gap, exponent);
+            if (geometry.modDegreePower(gap, exponent) == 0) { // 为子结点集合其中之一
+                return hasNode(index);
             } else { // 为子范围集合中首个以外的其中之一
                 index += 1;
             }
         }
-        Range<K, V> rangeNext = range.nodeChildrenRanges()[index];
+        Range<K, V> rangeNext = range.childRange(index);
         return null != rangeNext && rangeNext.containsByKey(rangeNext, real);
     }
 
@@ -196,16 +203,15 @@ abstract class Range<K, V> extends Pair {
         if (gap < 0) { // 为子范围集合中首个
             index = 0;
         } else {
-            int yPowM1 = range.yPowM1;
-            index = gap / yPowM1;
-            if (gap % yPowM1 == 0) { // 为子结点集合其中之一
-                Map.RangePair<K, V> node = nodes()[index];
-                return null != node ? node.getValue(key) : null;
+            int exponent = range.levelNow - 1;
+            index = geometry.divideByDegreePower(gap, exponent);
+            if (geometry.modDegreePower(gap, exponent) == 0) { // 为子结点集合其中之一
+                return value(index, key);
             } else { // 为子范围集合中首个以外的其中之一
                 index += 1;
             }
         }
-        Range<K, V> rangeNext = range.nodeChildrenRanges()[index];
+        Range<K, V> rangeNext = range.childRange(index);
         return null != rangeNext ? rangeNext.getVByKey(rangeNext, real, key) : null;
     }
 
@@ -229,21 +235,7 @@ abstract class Range<K, V> extends Pair {
         int m = calculateLevelNow(storeHash); // 当前结点范围对象所在B-Tree的层
         int v = calculateDegreeForOneLevelNow(storeHash, m); // 当前结点范围对象在整层度中的顺序位置
         int real = calculateReal(storeHash, m, v); // 当前key在B-Tree中的真实数字
-        return putReal(real, key, value, m, v);
-    }
-
-    private V putReal(int real, K key, V value, int m, int v) {
-        // 新建一个栈，用于存放自下而上每一父结点范围对象在整层度中的顺序位置
-        Deque<Integer> vDeque = new LinkedList<>();
-        vDeque.push(v); // 先把自己push到最底层
-        int temV = v;
-        for (int i = m; i < treeMaxLevel; i++) { // 从下至上开始push当前值的层层结点范围对象所在整层度中的顺序位置
-            temV = (temV - 1) / treeMaxDegree + 1;
-//                System.out.println("temV in = " + temV);
-            vDeque.push(temV);
-        }
-        vDeque.pop();
-        return putExec(vDeque, real, key, value, m, v);
+        return putExec(real, key, value, m, v);
     }
 
     /**
@@ -251,7 +243,9 @@ abstract class Range<K, V> extends Pair {
      * 该方法会在{@link TreeMemoryMap}中进行重写，{@code TreeMemoryMap}并非磁盘存储对象，而是内存缓存对象。
      * 理论上，该方法仅内存缓存对象重写即可。
      *
-     * @param vDeque 用于存放自下而上每一父结点范围对象在整层度中顺序位置的栈
+     * <p>第m层之上第k层父结点范围对象在整层度中的顺序位置为 <tt>(v - 1) / y^k + 1</tt> ，
+     * 重写者可据此自上而下逐层定位，无需额外的栈。
+     *
      * @param real   真实存入的键
      * @param key    传入的key
      * @param value  传入的value
@@ -259,134 +253,185 @@ abstract class Range<K, V> extends Pair {
      * @param v      结点范围对象在整层度中的顺序位置
      * @return 计划返回的是旧的值，如果有的话。当没有旧值的时候，就返回当前新存入的值
      */
-    V putExec(Deque<Integer> vDeque, int real, K key, V value, int m, int v) {
+    V putExec(int real, K key, V value, int m, int v) {
         return null;
     }
 
+    @SuppressWarnings("unchecked")
     V getValue(String name, TDConfig config, int unit, int storeHash, K key) {
-        Range.Position position = position(unit, storeHash, key, null);
-        File file = Storage.file(TDConfig.storageIndexFilePath(config.getDbPath(), name, position.unit, position.level,
-                position.rangeLevelDegree, position.rangeDegree, position.nodeDegree));
+        String path = paths.path(unit, storeHash, false);
+        ChannelCache.Handle handle = null;
         try {
-            String fileContent = Files.asCharSource(file, Charset.forName("UTF-8")).read();
-            if (StringUtils.isEmpty(fileContent)) {
-                file.delete();
+            handle = channels.acquire(path, false);
+            if (null == handle) {
                 return null;
-            } else {
-                return JSON.parseObject(fileContent, new TypeReference<V>() {});
             }
+            byte[] fileContent = handle.read();
+            return fileContent.length == 0 ? null : (V) config.getCodec().decode(fileContent);
         } catch (IOException e) {
             e.printStackTrace();
-            file.delete();
+        } finally {
+            channels.release(handle);
         }
         return null;
     }
 
-    private ReentrantLock lock = new ReentrantLock();
-    private HashMap<String, Storage<V>> map = new HashMap<>();
+    /** 索引文件目录注册表，仅顶级结点范围对象持有，由使用索引文件的子类创建 */
+    IndexPaths paths;
+    /** 已打开索引文件的句柄缓存，仅顶级结点范围对象持有，由使用索引文件的子类创建 */
+    ChannelCache channels;
+    /** 通过{@link #putValueSync}写入但尚未落盘的索引文件路径，仅顶级结点范围对象持有 */
+    private Set<String> unsynced;
 
     V putValue(String name, TDConfig config, int unit, int storeHash, K key, V value) {
-        Position position = position(unit, storeHash, key, value);
-        String path = TDConfig.storageIndexFilePath(config.getDbPath(), name, position.unit, position.level,
-                position.rangeLevelDegree, position.rangeDegree, position.nodeDegree);
-        File file = Storage.file(path);
-        try {
-            Files.asCharSink(file, Charset.forName("UTF-8")).write(JSON.toJSONString(position.value));
-        } catch (IOException e) {
-            e.printStackTrace();
+        return write(paths.path(unit, storeHash, true), config, value) ? value : null;
+    }
+
+    V putValueSync(String name, TDConfig config, int unit, int storeHash, K key, V value) {
+        String path = paths.path(unit, storeHash, true);
+        if (!write(path, config, value)) {
             return null;
         }
+        // 写入完成后才登记，否则并发的sync可能在写入前移除该路径，使这次写入永不落盘
+        unsynced.add(path);
         return value;
     }
 
-    V putValueSync(String name, TDConfig config, int unit, int storeHash, K key, V value) {
-        Position position = position(unit, storeHash, key, value);
-        String path = TDConfig.storageIndexFilePath(config.getDbPath(), name, position.unit, position.level,
-                position.rangeLevelDegree, position.rangeDegree, position.nodeDegree);
+    /**
+     * 通过句柄缓存覆盖写入索引文件，同一索引文件的写入在其句柄内串行
+     *
+     * @param path   索引文件完整路径及文件名
+     * @param config 表配置
+     * @param value  值
+     * @return 写入成功时返回{@code true}
+     */
+    private boolean write(String path, TDConfig config, V value) {
+        ChannelCache.Handle handle = null;
         try {
-            lock.lock();
-            while (null == map.get(path)) {
-                map.put(path, new Storage<>(path));
-            }
+            handle = channels.acquire(path, true);
+            handle.write(config.getCodec().encode(value));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         } finally {
-            lock.unlock();
+            channels.release(handle);
         }
-        synchronized (map.get(path)) {
-            return map.get(path).write(value);
+        return true;
+    }
+
+    /**
+     * 将已写入的值落盘，并非强制重写。
+     * 默认实现将通过{@link #putValueSync}写入的索引文件逐一落盘，以其它方式存储值的子类需重写以落盘自身文件。
+     */
+    void sync() {
+        for (String path : unsynced) {
+            unsynced.remove(path);
+            ChannelCache.Handle handle = null;
+            try {
+                handle = channels.acquire(path, false);
+                if (null != handle) {
+                    handle.force();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                channels.release(handle);
+            }
         }
     }
 
-    final Position position(int unit, int storeHash, K key, V value) {
+    /**
+     * 计算key在B-Tree中的地址，地址压缩存放于一个 <tt>long</tt> 中，不创建任何对象
+     *
+     * <p>高32位为结点范围对象所在B-Tree的层 - m，低32位为key在该层所有结点中的顺序，自1开始，
+     * 各级地址通过{@link #level(long)}、{@link #rangeLevelDegree(long)}、{@link #rangeDegree(long)}
+     * 及{@link #nodeDegree(long)}解出。
+     *
+     * @param storeHash 真正执行存入操作的hash值
+     * @return 压缩后的地址
+     */
+    final long position(int storeHash) {
         int m = calculateLevelNow(storeHash); // 当前结点范围对象所在B-Tree的层
-        int v = calculateDegreeForOneLevelNow(storeHash, m); // 当前结点范围对象在整层度中的顺序位置
-        int real = calculateReal(storeHash, m, v); // 当前key在B-Tree中的真实数字
-        int rangeV = v - ((v - 1) / treeMaxDegree) * treeMaxDegree;
-        // 结点对象在结点范围对象中的度，此处即为存储行号
-        int minV = (int) ((real - (v - 1) * Math.pow(treeMaxDegree, m)) / Math.pow(treeMaxDegree, m - 1));
-//        System.out.println("unit = " + unit + " | storeHash = " + storeHash + " | y = " + treeMaxDegree + " | m = " + m +
-//                " | n = " + treeMaxLevel + " | v = " + v + " | rangeV = " + rangeV + " | minV = " + minV +
-//                " | key = " + key + " | real = " + real);
-        return new Position(unit, m, v, rangeV, minV, value);
+        return ((long) m << 32) | geometry.offsetInLevel(storeHash, m);
     }
 
-    class StorageThread implements Runnable {
-
-        boolean mapCan = false;
-
-        @Override
-        public void run() {
-            while (null != map) {
-                try {
-                    lock.lock();
-                    mapCan = map.size() > 0;
-                    while (mapCan) {
-                        for (java.util.Map.Entry<String, Storage<V>> entry : map.entrySet()) {
-                            if (entry.getValue().out()) {
-                                if (Thread.currentThread().isInterrupted()) {
-                                    break;
-                                }
-                                map.remove(entry.getKey());
-                            }
-                        }
-                        mapCan = false;
-                    }
-                } finally {
-                    lock.unlock();
-                }
-                if (Thread.currentThread().isInterrupted()) {
-                    break;
-                }
-                try {
-                    TimeUnit.MINUTES.sleep(5);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * B-Tree的层级，此处即二级目录 - m
+     *
+     * @param position {@link #position(int)}计算所得地址
+     * @return 层级
+     */
+    static int level(long position) {
+        return (int) (position >>> 32);
+    }
+
+    /**
+     * key在所在层所有结点中的顺序，自1开始
+     *
+     * @param position {@link #position(int)}计算所得地址
+     * @return 在所在层中的顺序
+     */
+    static int offsetInLevel(long position) {
+        return (int) position;
+    }
+
+    /**
+     * B-Tree结点范围对象在整层中的所在度，此处即三级目录 - v
+     *
+     * @param position {@link #position(int)}计算所得地址
+     * @return 结点范围对象在整层中的所在度
+     */
+    final int rangeLevelDegree(long position) {
+        return (offsetInLevel(position) - 1) / nodeArrayLength + 1;
+    }
+
+    /**
+     * B-Tree结点范围对象在上一级结点范围对象中所在度，此处即文件名称
+     *
+     * @param position {@link #position(int)}计算所得地址
+     * @return 结点范围对象在上一级结点范围对象中所在度
+     */
+    final int rangeDegree(long position) {
+        return geometry.modDegreePower(rangeLevelDegree(position) - 1, 1) + 1;
+    }
+
+    /**
+     * B-Tree结点对象在结点范围对象中的度，此处即为存储行号
+     *
+     * @param position {@link #position(int)}计算所得地址
+     * @return 结点对象在结点范围对象中的度
+     */
+    final int nodeDegree(long position) {
+        return (offsetInLevel(position) - 1) % nodeArrayLength + 1;
+    }
+
+    /**
+     * 关闭空闲超时的索引文件句柄，由{@link Housekeeper}周期调用
+     */
+    void sweep() {
+        if (null != channels) {
+            channels.evictIdle();
         }
+    }
 
+    /**
+     * 回收已失效数据占用的磁盘空间，由{@link Housekeeper}的压缩线程周期调用，并非强制重写。
+     * 默认实现不做任何处理，以追加方式写入的子类需重写以回收被覆盖的记录。
+     *
+     * @param housekeeper 执行压缩的调度器，压缩读写需通过其{@link Housekeeper#throttle(int)}限速
+     */
+    void compact(Housekeeper housekeeper) {
     }
 
-    class Position {
-        /** hash表的数组下标，此处即一级目录 */
-        int unit;
-        /** B-Tree的层级，此处即二级目录 - m */
-        int level;
-        /** B-Tree结点范围对象在整层中的所在度，此处即三级目录 - v */
-        int rangeLevelDegree;
-        /** B-Tree结点范围对象在上一级结点范围对象中所在度，此处即文件名称 */
-        int rangeDegree;
-        /** B-Tree结点对象在结点范围对象中的度，此处即为存储行号 */
-        int nodeDegree;
-        V value;
-
-        Position(int unit, int level, int rangeLevelDegree, int rangeDegree, int nodeDegree, V value) {
-            this.unit = unit;
-            this.level = level;
-            this.rangeLevelDegree = rangeLevelDegree;
-            this.rangeDegree = rangeDegree;
-            this.nodeDegree = nodeDegree;
-            this.value = value;
+    /**
+     * 关闭当前结点范围对象持有的文件，并非强制重写。
+     * 默认实现落盘通过{@link #putValueSync}写入的索引文件后关闭所有索引文件句柄，持有其它文件的子类需重写以释放自身文件。
+     */
+    void close() {
+        sync();
+        if (null != channels) {
+            channels.close();
         }
     }
 
-}
\ No newline at end of file
+}
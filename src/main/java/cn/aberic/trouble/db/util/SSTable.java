@@ -0,0 +1,330 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LSM表中不可变的有序表。
+ *
+ * <p>有序表由{@link Writer}按hash值升序一次性顺序写入，写入完成后不再修改，文件格式为：
+ * <pre>
+ * | value ... | index: (hash(4) offset(8) length(4)) * count | bloom | indexOffset(8) bloomOffset(8) count(4) magic(4) |
+ * </pre>
+ * 打开时索引与布隆过滤器被读入内存，{@link #get(int)}先以布隆过滤器排除不存在的hash值，
+ * 再以二分查找定位值的位置，一次定位读即可取得值，因此每个有序表至多只需一次磁盘读取。
+ *
+ * <p>有序表以引用计数管理文件句柄：所在的层列表持有一个引用，读取方在读取期间通过{@link #retain()}各持有一个引用。
+ * 被合并替换的有序表通过{@link #retire()}释放层列表的引用，待最后一个读取方释放后才关闭并删除文件，
+ * 因此读取无需加锁即可与合并并发进行。
+ *
+ * @author agent on 2026/10/17 06:49
+ * @version 1.0
+ * @see HashLsmMap
+ * @since 1.0
+ */
+class SSTable implements Closeable {
+
+    private static final int MAGIC = 0x54445353;
+    private static final int FOOTER_LENGTH = 24;
+    private static final int INDEX_RECORD_LENGTH = 16;
+    /** 布隆过滤器误判率 */
+    private static final double BLOOM_FPP = 0.01;
+
+    /** 有序表所在层 */
+    final int level;
+    /** 有序表编号，编号越大的有序表越新 */
+    final int id;
+    final File file;
+    private final FileChannel channel;
+    /** 按升序排列的hash值 */
+    private final int[] hashes;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final BloomFilter<Integer> bloom;
+    /** 引用计数，为0时文件句柄已关闭 */
+    private final AtomicInteger refs = new AtomicInteger(1);
+    /** 引用全部释放后是否删除有序表文件 */
+    private volatile boolean obsolete;
+
+    private SSTable(int level, int id, File file) throws IOException {
+        this.level = level;
+        this.id = id;
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ByteBuffer footer = read(channel.size() - FOOTER_LENGTH, FOOTER_LENGTH);
+        long indexOffset = footer.getLong();
+        long bloomOffset = footer.getLong();
+        int count = footer.getInt();
+        if (footer.getInt() != MAGIC) {
+            channel.close();
+            throw new IOException("broken sstable " + file);
+        }
+        hashes = new int[count];
+        offsets = new long[count];
+        lengths = new int[count];
+        ByteBuffer index = read(indexOffset, count * INDEX_RECORD_LENGTH);
+        for (int i = 0; i < count; i++) {
+            hashes[i] = index.getInt();
+            offsets[i] = index.getLong();
+            lengths[i] = index.getInt();
+        }
+        ByteBuffer bloomBytes = read(bloomOffset, (int) (channel.size() - FOOTER_LENGTH - bloomOffset));
+        bloom = BloomFilter.readFrom(new ByteArrayInputStream(bloomBytes.array()), Funnels.integerFunnel());
+    }
+
+    /**
+     * 打开已写入完成的有序表
+     *
+     * @param level 有序表所在层
+     * @param id    有序表编号
+     * @param file  有序表文件
+     * @return 有序表
+     * @throws IOException 有序表读取失败或文件已损坏
+     */
+    static SSTable open(int level, int id, File file) throws IOException {
+        return new SSTable(level, id, file);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of sstable " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 读取指定hash值对应的值
+     *
+     * @param hash hash值
+     * @return 值字节，不存在时返回{@code null}
+     * @throws IOException 读取失败
+     */
+    byte[] get(int hash) throws IOException {
+        if (!bloom.mightContain(hash)) {
+            return null;
+        }
+        int i = Arrays.binarySearch(hashes, hash);
+        return i < 0 ? null : value(i);
+    }
+
+    /**
+     * 有序表中的记录数量
+     *
+     * @return 记录数量
+     */
+    int count() {
+        return hashes.length;
+    }
+
+    /**
+     * 按升序排列的第i个hash值
+     */
+    int hash(int i) {
+        return hashes[i];
+    }
+
+    /**
+     * 按升序排列的第i个值
+     */
+    byte[] value(int i) throws IOException {
+        return read(offsets[i], lengths[i]).array();
+    }
+
+    /**
+     * 有序表文件大小
+     *
+     * @return 文件大小，单位为字节
+     */
+    long length() {
+        return file.length();
+    }
+
+    /**
+     * 读取前增加引用计数，读取完成后必须调用{@link #release()}
+     *
+     * @return 是否成功引用，有序表已被关闭时返回{@code false}
+     */
+    boolean retain() {
+        while (true) {
+            int count = refs.get();
+            if (count == 0) {
+                return false;
+            }
+            if (refs.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放一个引用，最后一个引用释放时关闭文件句柄，已被合并替换的有序表同时删除文件
+     */
+    void release() {
+        if (refs.decrementAndGet() != 0) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (obsolete) {
+            file.delete();
+        }
+    }
+
+    /**
+     * 有序表已被合并替换，释放层列表持有的引用，最后一个读取方释放后删除文件
+     */
+    void retire() {
+        obsolete = true;
+        release();
+    }
+
+    /**
+     * 释放层列表持有的引用，最后一个读取方释放后关闭文件句柄
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * 有序表写入者，调用方必须按hash值严格升序调用{@link #add(int, byte[])}
+     *
+     * @author agent on 2026/10/17 06:49
+     * @version 1.0
+     * @see SSTable
+     * @since 1.0
+     */
+    static class Writer {
+
+        private final int level;
+        private final int id;
+        private final File file;
+        private final File tmp;
+        private final FileOutputStream stream;
+        private final DataOutputStream out;
+        private int[] hashes = new int[64];
+        private long[] offsets = new long[64];
+        private int[] lengths = new int[64];
+        private int count;
+        private long offset;
+
+        /**
+         * @param level 有序表所在层
+         * @param id    有序表编号
+         * @param file  有序表文件，写入期间使用同目录下的临时文件，完成后原子地重命名
+         */
+        Writer(int level, int id, File file) throws IOException {
+            this.level = level;
+            this.id = id;
+            this.file = file;
+            this.tmp = new File(file.getPath() + ".tmp");
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            this.stream = new FileOutputStream(tmp);
+            this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        }
+
+        void add(int hash, byte[] value) throws IOException {
+            if (count == hashes.length) {
+                hashes = Arrays.copyOf(hashes, count << 1);
+                offsets = Arrays.copyOf(offsets, count << 1);
+                lengths = Arrays.copyOf(lengths, count << 1);
+            }
+            hashes[count] = hash;
+            offsets[count] = offset;
+            lengths[count] = value.length;
+            count++;
+            out.write(value);
+            offset += value.length;
+        }
+
+        /**
+         * 写入索引、布隆过滤器及文件尾，落盘后重命名为正式文件并打开
+         *
+         * @return 写入完成的有序表
+         * @throws IOException 写入或落盘失败
+         */
+        SSTable finish() throws IOException {
+            long indexOffset = offset;
+            BloomFilter<Integer> bloom = BloomFilter.create(Funnels.integerFunnel(), Math.max(count, 1), BLOOM_FPP);
+            for (int i = 0; i < count; i++) {
+                out.writeInt(hashes[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+                bloom.put(hashes[i]);
+            }
+            long bloomOffset = indexOffset + (long) count * INDEX_RECORD_LENGTH;
+            bloom.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeLong(bloomOffset);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            out.flush();
+            stream.getFD().sync();
+            out.close();
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return open(level, id, file);
+        }
+
+        /**
+         * 放弃写入并删除临时文件
+         */
+        void abort() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            tmp.delete();
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import java.util.Arrays;
+
+/**
+ * 按位图索引稀疏存放的定长槽位数组。
+ *
+ * <p>槽位数组创建时不分配与长度相当的数组，而是以位图标记已写入的槽位，前128个槽位的位图直接存放于字段中，已写入的对象按槽位顺序紧凑存放，
+ * 对象在紧凑数组中的下标即位图中该槽位之前已置位的位数。当已写入的槽位数量使紧凑数组超过长度的一半时，
+ * 槽位数组提升为与长度相当的稠密数组，此后按下标直接访问。
+ *
+ * <p>随机分布的key使绝大部分结点范围对象只写入了极少数槽位，稀疏存放可避免为空槽位分配内存。
+ * 槽位一旦写入不可清空，与{@link Range}中结点及子结点范围对象的生命周期一致。
+ *
+ * @author agent on 2026/10/17 06:27
+ * @version 1.0
+ * @see Range
+ * @since 1.0
+ */
+class SparseSlots<T> {
+
+    /** 紧凑数组初始长度 */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /** 槽位数组长度 */
+    private final int length;
+    /** 是否已提升为稠密数组 */
+    private boolean dense;
+    /** 槽位0~63的写入位图 */
+    private long bits0;
+    /** 槽位64~127的写入位图 */
+    private long bits1;
+    /** 槽位128及之后的写入位图，槽位数组长度不超过128时为{@code null} */
+    private long[] bitsRest;
+    /** 稀疏时为按槽位顺序紧凑存放的对象，稠密时为按下标存放的对象 */
+    private Object[] items;
+    /** 已写入的槽位数量 */
+    private int size;
+
+    SparseSlots(int length) {
+        this.length = length;
+        if (length > 128) {
+            bitsRest = new long[(length - 128 + 63) >>> 6];
+        }
+        items = new Object[Math.min(INITIAL_CAPACITY, length)];
+    }
+
+    /**
+     * 已写入的槽位数量
+     *
+     * @return 已写入的槽位数量
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 获取槽位中的对象
+     *
+     * @param index 槽位下标
+     * @return 槽位中的对象，如果未写入则返回{@code null}
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        if (dense) {
+            return (T) items[index];
+        }
+        long bit = 1L << index;
+        if ((word(index) & bit) == 0) {
+            return null;
+        }
+        return (T) items[position(index, bit)];
+    }
+
+    /**
+     * 写入槽位，如果槽位已写入则替换
+     *
+     * @param index 槽位下标
+     * @param item  非空对象
+     */
+    void set(int index, T item) {
+        if (dense) {
+            if (null == items[index]) {
+                size++;
+            }
+            items[index] = item;
+            return;
+        }
+        long bit = 1L << index;
+        int position = position(index, bit);
+        if ((word(index) & bit) != 0) {
+            items[position] = item;
+            return;
+        }
+        if (size == items.length) {
+            int capacity = size << 1;
+            if (capacity > length >>> 1) {
+                inflate();
+                set(index, item);
+                return;
+            }
+            items = Arrays.copyOf(items, capacity);
+        }
+        System.arraycopy(items, position, items, position + 1, size - position);
+        items[position] = item;
+        if (index < 64) {
+            bits0 |= bit;
+        } else if (index < 128) {
+            bits1 |= bit;
+        } else {
+            bitsRest[(index - 128) >>> 6] |= bit;
+        }
+        size++;
+    }
+
+    /**
+     * 槽位所在的位图字
+     */
+    private long word(int index) {
+        if (index < 64) {
+            return bits0;
+        }
+        return index < 128 ? bits1 : bitsRest[(index - 128) >>> 6];
+    }
+
+    /**
+     * 槽位在紧凑数组中的下标，即位图中该槽位之前已置位的位数
+     */
+    private int position(int index, long bit) {
+        if (index < 64) {
+            return Long.bitCount(bits0 & (bit - 1));
+        }
+        if (index < 128) {
+            return Long.bitCount(bits0) + Long.bitCount(bits1 & (bit - 1));
+        }
+        int word = (index - 128) >>> 6;
+        int position = Long.bitCount(bits0) + Long.bitCount(bits1) + Long.bitCount(bitsRest[word] & (bit - 1));
+        for (int i = 0; i < word; i++) {
+            position += Long.bitCount(bitsRest[i]);
+        }
+        return position;
+    }
+
+    /**
+     * 提升为稠密数组
+     */
+    private void inflate() {
+        Object[] dense = new Object[length];
+        int position = 0;
+        for (int index = 0; index < length; index++) {
+            if ((word(index) & (1L << index)) != 0) {
+                dense[index] = items[position++];
+            }
+        }
+        items = dense;
+        this.dense = true;
+        bitsRest = null;
+    }
+
+}
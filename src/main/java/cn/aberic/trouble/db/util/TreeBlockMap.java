@@ -25,12 +25,19 @@
 package cn.aberic.trouble.db.util;
 
 import cn.aberic.trouble.db.block.TroubleBlock;
+import cn.aberic.trouble.db.block.TroubleBlockBody;
+import cn.aberic.trouble.db.block.TroubleBlockHeader;
 import cn.aberic.trouble.db.block.TroubleTransaction;
 import cn.aberic.trouble.db.block.TroubleValueWrite;
 import cn.aberic.trouble.db.core.TDConfig;
 import cn.aberic.trouble.db.core.TDManager;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.util.TypeUtils;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.reflect.Type;
 
 /**
  * @author Aberic on 2018/10/16 10:33
@@ -49,8 +56,9 @@ class TreeBlockMap<K> extends AbstractTreeMap<K, TroubleBlock> implements Serial
         root = new BlockRange<>(name);
     }
 
-    TreeBlockMap(String name, TDConfig config) {
+    TreeBlockMap(String name, TDConfig config, TDManager manager) {
         root = new BlockRange<>(name, config);
+        root.manager = manager;
     }
 
     @Override
@@ -62,7 +70,14 @@ class TreeBlockMap<K> extends AbstractTreeMap<K, TroubleBlock> implements Serial
 
         private TDConfig config;
         private String name;
+        /** 所属实例，为{@code null}时使用{@link TDManager#obtain()} */
+        private TDManager manager;
         private static final String txHashName = "_thn";
+        /** 区块的完整泛型类型，用于将解码结果还原为区块对象 */
+        private static final Type BLOCK_TYPE =
+                new TypeReference<TroubleBlock<TroubleBlockHeader, TroubleBlockBody<TroubleTransaction>>>() {}.getType();
+        /** 区块文件存储 */
+        private BlockStorage storage;
 
         BlockRange(String name) {
             super();
@@ -77,6 +92,27 @@ class TreeBlockMap<K> extends AbstractTreeMap<K, TroubleBlock> implements Serial
         private void init(String name, TDConfig config) {
             this.name = name;
             this.config = config;
+            try {
+                this.storage = new BlockStorage(name, config);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * 根据 <tt>unit</tt> 及 <tt>storeHash</tt> 还原区块高度
+         */
+        private int height(int unit, int storeHash) {
+            return unit * treeMaxLength + storeHash;
+        }
+
+        /**
+         * 当前已存储的区块数量
+         *
+         * @return 区块数量
+         */
+        int size() {
+            return storage.size();
         }
 
         /**
@@ -86,10 +122,7 @@ class TreeBlockMap<K> extends AbstractTreeMap<K, TroubleBlock> implements Serial
          */
         @Override
         boolean contains(int unit, int storeHash) {
-            Position position = position(unit, storeHash, null, null);
-            String path = TDConfig.storageIndexFilePath(config.getDbPath(), name, position.unit, position.level,
-                    position.rangeLevelDegree, position.rangeDegree, position.nodeDegree);
-            return fileExist(path);
+            return storage.contains(height(unit, storeHash));
         }
 
         /**
@@ -99,7 +132,15 @@ class TreeBlockMap<K> extends AbstractTreeMap<K, TroubleBlock> implements Serial
          */
         @Override
         TroubleBlock get(int unit, int storeHash, K key) {
-            return getValue(name, config, unit, storeHash, key);
+            try {
+                byte[] bytes = storage.read(height(unit, storeHash));
+                // JSON等编解码器无法还原区块类型，解码结果需要再转换为区块对象
+                return null == bytes ? null : TypeUtils.cast(config.getCodec().decode(bytes), BLOCK_TYPE,
+                        ParserConfig.getGlobalInstance());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
         }
 
         /**
@@ -110,14 +151,49 @@ class TreeBlockMap<K> extends AbstractTreeMap<K, TroubleBlock> implements Serial
         @SuppressWarnings("unchecked")
         @Override
         TroubleBlock put(int unit, int storeHash, K key, TroubleBlock value) {
+            int height = height(unit, storeHash);
+            // 高度不连续时在写入交易及写集之前拒绝
+            storage.checkHeight(height);
+            TDManager manager = null == this.manager ? TDManager.obtain() : this.manager;
             value.getBody().getTransactions().forEach(transaction -> {
                 // 将交易hash与关联区块key写入磁盘库
-                TDManager.obtain().putD(String.format("%s%s", name, txHashName), ((TroubleTransaction) transaction).getTxHash(), key);
+                manager.putD(String.format("%s%s", name, txHashName), ((TroubleTransaction) transaction).getTxHash(), key);
                 // 将写集KV写入磁盘库
                 ((TroubleTransaction) transaction).getRwSet().getWrites().forEach(write ->
-                        TDManager.obtain().putD(name, ((TroubleValueWrite) write).getKey(), ((TroubleValueWrite) write).getValue()));
+                        manager.putD(name, ((TroubleValueWrite) write).getKey(), ((TroubleValueWrite) write).getValue()));
             });
-            return putValue(name, config, unit, storeHash, key, value);
+            try {
+                storage.write(height, config.getCodec().encode(value));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            return value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void sync() {
+            try {
+                storage.sync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void close() {
+            try {
+                storage.sync();
+                storage.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
 
     }
@@ -25,7 +25,10 @@
 package cn.aberic.trouble.db.util;
 
 import cn.aberic.trouble.db.core.TDConfig;
+import cn.aberic.trouble.db.core.TDDurability;
+import org.apache.commons.lang3.StringUtils;
 
+import java.io.File;
 import java.io.Serializable;
 
 /**
@@ -58,6 +61,8 @@ class TreeDiskMap<K, V> extends AbstractTreeMap<K, V> implements Serializable {
         private TDConfig config;
         private String name;
         private boolean concurrent;
+        /** 已写入的 <tt>(unit, storeHash)</tt> 的布隆过滤器，未命中时无需访问文件系统 */
+        private KeyBloomFilter filter;
 
         DiskRange(String name, boolean concurrent) {
             super();
@@ -74,6 +79,46 @@ class TreeDiskMap<K, V> extends AbstractTreeMap<K, V> implements Serializable {
         private void init(String name, TDConfig config) {
             this.name = name;
             this.config = config;
+            this.filter = new KeyBloomFilter(config);
+            this.paths = new IndexPaths(TDConfig.storageIndexDirPath(config.getDbPath(), name), this);
+            this.channels = new ChannelCache(config.getMaxOpenFiles(), config.getChannelIdleMillis());
+            load();
+        }
+
+        /**
+         * 遍历索引文件目录，将已存在的索引文件写入布隆过滤器。
+         * 目录结构为 <tt>unit/level/rangeLevelDegree/rangeDegree/nodeDegree.tdb</tt> ，
+         * 由此可还原出每一个索引文件对应的 <tt>storeHash</tt>
+         */
+        private void load() {
+            for (File unit : listDirs(new File(TDConfig.storageIndexDirPath(config.getDbPath(), name)))) {
+                for (File level : listDirs(unit)) {
+                    for (File rangeLevelDegree : listDirs(level)) {
+                        int start = levelStartIndex(Integer.parseInt(level.getName()))
+                                + (Integer.parseInt(rangeLevelDegree.getName()) - 1) * nodeArrayLength;
+                        for (File rangeDegree : listDirs(rangeLevelDegree)) {
+                            File[] files = rangeDegree.listFiles(File::isFile);
+                            if (null == files) {
+                                continue;
+                            }
+                            for (File file : files) {
+                                int nodeDegree = TDConfig.storageIndexNodeDegree(file.getName());
+                                if (nodeDegree > 0) {
+                                    filter.put(Integer.parseInt(unit.getName()), start + nodeDegree);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * 列出目录下所有以数字命名的子目录
+         */
+        private static File[] listDirs(File dir) {
+            File[] dirs = dir.listFiles(file -> file.isDirectory() && StringUtils.isNumeric(file.getName()));
+            return null == dirs ? new File[0] : dirs;
         }
 
         /**
@@ -83,10 +128,10 @@ class TreeDiskMap<K, V> extends AbstractTreeMap<K, V> implements Serializable {
          */
         @Override
         boolean contains(int unit, int storeHash) {
-            Position position = position(unit, storeHash, null, null);
-            String path = TDConfig.storageIndexFilePath(config.getDbPath(), name, position.unit, position.level,
-                    position.rangeLevelDegree, position.rangeDegree, position.nodeDegree);
-            return fileExist(path);
+            if (!filter.mightContain(unit, storeHash)) {
+                return false;
+            }
+            return fileExist(paths.path(unit, storeHash, false));
         }
 
         /**
@@ -106,7 +151,10 @@ class TreeDiskMap<K, V> extends AbstractTreeMap<K, V> implements Serializable {
          */
         @Override
         V put(int unit, int storeHash, K key, V value) {
-            if (concurrent) {
+            // 先于写入记录到布隆过滤器，保证并发读取时已落盘的值不会被误判为不存在
+            filter.put(unit, storeHash);
+            // 需要落盘的写入记录其索引文件，供sync()落盘
+            if (concurrent || config.getDurability(TDDurability.NONE) != TDDurability.NONE) {
                 return putValueSync(name, config, unit, storeHash, key, value);
             }
             return putValue(name, config, unit, storeHash, key, value);
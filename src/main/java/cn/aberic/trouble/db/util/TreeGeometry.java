@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * B-Tree的几何参数及据此预先计算的寻址表。
+ *
+ * <p>同一组 <tt>(treeMaxLevel, nodeArrayLength)</tt> 只会构造一个实例，由该B-Tree的所有结点范围对象共享，
+ * 实例构造后不可修改，因此不同配置的表之间互不影响。
+ *
+ * <p>当B-Tree的最大度 <tt>y = nodeArrayLength + 1</tt> 为2的幂时，对 <tt>y^k</tt> 的乘除与取模
+ * 均以移位与掩码完成，可通过{@link cn.aberic.trouble.db.core.TDConfig#setTreeDegreeShift(int, int)}选用该几何模式。
+ *
+ * @author agent on 2026/10/17 06:17
+ * @version 1.0
+ * @see Pair
+ * @since 1.0
+ */
+final class TreeGeometry {
+
+    /** 已构造的几何参数，以 <tt>treeMaxLevel &lt;&lt; 32 | nodeArrayLength</tt> 为键 */
+    private static final ConcurrentHashMap<Long, TreeGeometry> GEOMETRIES = new ConcurrentHashMap<>();
+
+    /** B-Tree的层 - n */
+    final int treeMaxLevel;
+    /** 结点范围对象中的所属子结点数组大小 - x */
+    final int nodeArrayLength;
+    /** B-Tree的最大度，即结点范围结点拥有子树的数目 - y */
+    final int treeMaxDegree;
+    /** B-Tree的最大值，如2层1度最大值3 */
+    final int treeMaxLength;
+    /** 最大度是否为2的幂 */
+    final boolean powerOfTwo;
+    /** 最大度为2的幂时，y = 1 &lt;&lt; degreeShift */
+    private final int degreeShift;
+    /** 每一层的末尾终结位置 */
+    private final int[] levelEveryRangeLastIndexArray;
+    /** B-Tree最大度的各次幂，下标为指数，即y^0 ~ y^n */
+    private final int[] degreePowers;
+    /** 按二进制位数查找层的表，下标为位数b，值为 <tt>floor(log_y(2^(b-1)))</tt> */
+    private final int[] levelByBitLength;
+
+    private TreeGeometry(int treeMaxLevel, int nodeArrayLength) {
+        this.treeMaxLevel = treeMaxLevel;
+        this.nodeArrayLength = nodeArrayLength;
+        this.treeMaxDegree = nodeArrayLength + 1;
+        this.powerOfTwo = (treeMaxDegree & (treeMaxDegree - 1)) == 0;
+        this.degreeShift = Integer.numberOfTrailingZeros(treeMaxDegree);
+        degreePowers = new int[treeMaxLevel + 1];
+        levelEveryRangeLastIndexArray = new int[treeMaxLevel + 1];
+        long power = 1;
+        long lastIndex = 0;
+        degreePowers[0] = 1;
+        for (int i = 1; i <= treeMaxLevel; i++) {
+            lastIndex += nodeArrayLength * power;
+            power *= treeMaxDegree;
+            if (power > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format(
+                        "tree is too large, treeMaxLevel = %s, nodeArrayLength = %s", treeMaxLevel, nodeArrayLength));
+            }
+            degreePowers[i] = (int) power;
+            levelEveryRangeLastIndexArray[i] = (int) lastIndex;
+        }
+        treeMaxLength = levelEveryRangeLastIndexArray[treeMaxLevel];
+        levelByBitLength = new int[Integer.SIZE];
+        for (int b = 1; b < Integer.SIZE; b++) {
+            long low = 1L << (b - 1);
+            int i = 0;
+            for (long p = treeMaxDegree; p <= low; p *= treeMaxDegree) {
+                i++;
+            }
+            levelByBitLength[b] = i;
+        }
+    }
+
+    /**
+     * 获取指定几何参数的实例
+     *
+     * @param treeMaxLevel    B-Tree的层 - n
+     * @param nodeArrayLength 结点范围对象中的所属子结点数组大小 - x
+     * @return 几何参数
+     */
+    static TreeGeometry of(int treeMaxLevel, int nodeArrayLength) {
+        return GEOMETRIES.computeIfAbsent(((long) treeMaxLevel << 32) | nodeArrayLength,
+                k -> new TreeGeometry(treeMaxLevel, nodeArrayLength));
+    }
+
+    /**
+     * 第 <tt>i</tt> 层的末尾终结位置，即自叶子层起前 <tt>i</tt> 层的结点总数
+     *
+     * @param i 自叶子层起的层数
+     * @return 末尾终结位置
+     */
+    int levelLastIndex(int i) {
+        return levelEveryRangeLastIndexArray[i];
+    }
+
+    /**
+     * 计算 <tt>storeHash</tt> 所在的层 - m
+     *
+     * <p>由于 <tt>x = y - 1</tt> ，自叶子层起前 <tt>i</tt> 层的结点总数恰为 <tt>y^i - 1</tt> ，
+     * 因此 <tt>storeHash</tt> 自叶子层起所在的层数 <tt>i = floor(log_y(storeHash))</tt> 。
+     * 先按 <tt>storeHash</tt> 的二进制位数查表得到 <tt>i</tt> 的下界，同一位数内 <tt>i</tt> 至多再大1，
+     * 再与 <tt>y^(i+1)</tt> 比较一次即可，最大度为2的幂时查表结果即为精确值。
+     *
+     * @param storeHash 真正执行存入操作的hash值
+     * @return 所在层
+     */
+    int level(int storeHash) {
+        if (storeHash <= 0 || storeHash > treeMaxLength) {
+            throw new IllegalArgumentException("storeHash out of tree, storeHash = " + storeHash);
+        }
+        int i = levelByBitLength[Integer.SIZE - Integer.numberOfLeadingZeros(storeHash)];
+        if (storeHash >= degreePowers[i + 1]) {
+            i++;
+        }
+        return treeMaxLevel - i;
+    }
+
+    /**
+     * 计算 <tt>storeHash</tt> 在所在层中的顺序，自1开始
+     *
+     * @param storeHash 真正执行存入操作的hash值
+     * @param level     所在层 - m
+     * @return 在所在层中的顺序
+     */
+    int offsetInLevel(int storeHash, int level) {
+        return storeHash - levelEveryRangeLastIndexArray[treeMaxLevel - level];
+    }
+
+    /**
+     * 获取B-Tree最大度的指定次幂，即y^exponent，指数为负时返回0
+     *
+     * @param exponent 指数
+     * @return y^exponent
+     */
+    int degreePower(int exponent) {
+        return exponent < 0 ? 0 : degreePowers[exponent];
+    }
+
+    /**
+     * 计算 <tt>value / y^exponent</tt> ， <tt>value</tt> 不可为负
+     */
+    int divideByDegreePower(int value, int exponent) {
+        return powerOfTwo ? value >>> (degreeShift * exponent) : value / degreePowers[exponent];
+    }
+
+    /**
+     * 计算 <tt>value % y^exponent</tt> ， <tt>value</tt> 不可为负
+     */
+    int modDegreePower(int value, int exponent) {
+        return powerOfTwo ? value & (degreePowers[exponent] - 1) : value % degreePowers[exponent];
+    }
+
+}
@@ -25,8 +25,7 @@
 package cn.aberic.trouble.db.util;
 
 import java.io.Serializable;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * n <====> tree level 0+
@@ -81,6 +80,16 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
         root = new MemoryRange<>(treeMaxLevel, nodeArrayLength);
     }
 
+    /**
+     * 构造值存放于堆外存储区的B-Tree，结点仅保存值在存储区中的句柄
+     *
+     * @param arena 堆外值存储区
+     */
+    TreeMemoryMap(int treeMaxLevel, int nodeArrayLength, ValueArena arena) {
+        root = new MemoryRange<>(treeMaxLevel, nodeArrayLength);
+        root.arena = arena;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -93,6 +102,11 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
 
     static class MemoryRange<K, V> extends Range<K, V> {
 
+        /** 堆外值存储区，由根结点范围对象传递给子结点范围对象，为{@code null}时值直接存放于结点中 */
+        ValueArena arena;
+        /** 堆外存储时的结点数组，首次写入时创建，按位图稀疏存放，此时{@link #nodes}不被使用 */
+        SparseSlots<ArenaNode<K>> arenaNodes;
+
         MemoryRange() {
             super();
         }
@@ -111,41 +125,68 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
          * @return {@inheritDoc}
          */
         @Override
-        V putExec(Deque<Integer> vDeque, int real, K key, V value, int m, int v) {
+        V putExec(int real, K key, V value, int m, int v) {
             MemoryRange<K, V> p = this, c = this;
             int selfV;
             // System.out.println("p.start = " + p.start + " | p.end = " + p.end);
-            while (null != vDeque.peek()) {
-                int temV = vDeque.pop();
-                selfV = (temV - 1) - ((temV - 1) / treeMaxDegree) * treeMaxDegree;
+            // 自上而下逐层定位，第m层之上第k层父结点范围对象在整层度中的顺序位置为(v - 1) / y^k + 1
+            for (int k = treeMaxLevel - m - 1; k >= 0; k--) {
+                int temV = geometry.divideByDegreePower(v - 1, k) + 1;
+                selfV = geometry.modDegreePower(temV - 1, 1);
 //                System.out.println("temV out = " + temV + " | selfV out = " + selfV);
-                c = (MemoryRange<K, V>) p.nodeChildrenRanges[selfV];
+                c = (MemoryRange<K, V>) p.childRange(selfV);
                 if (null == c) {
                     c = new MemoryRange<>(p.levelNow - 1, 0, temV, treeMaxLevel, nodeArrayLength);
-                    p.nodeChildrenRanges[selfV] = c;
+                    c.arena = arena;
+                    if (null == p.nodeChildrenRanges) {
+                        p.nodeChildrenRanges = new SparseSlots<>(treeMaxDegree);
+                    }
+                    p.nodeChildrenRanges.set(selfV, c);
                 }
                 p = c;
             }
             // z = (real - (v - 1)(y^m))/(y^(m - 1)) - 1
-            int minV = (int) ((real - (v - 1) * Math.pow(treeMaxDegree, m)) / Math.pow(treeMaxDegree, m - 1) - 1);
+            int minV = geometry.divideByDegreePower(real - (v - 1) * degreePower(m), m - 1) - 1;
 //            System.out.println("y = " + treeMaxDegree + " | m = " + m + " | n = " + treeMaxLevel + " | v = " + v + " | minV = " + minV + " | key = " + key + " | real = " + real);
-            Node<K, V> node = (Node<K, V>) c.nodes[minV];
+            if (null != arena) {
+                return c.putArena(minV, key, value);
+            }
+            RangePair<K, V> node = c.node(minV);
             if (null == node) {
-                node = new Node<>(key, value);
-                c.nodes[minV] = node;
+                if (null == c.nodes) {
+                    c.nodes = new SparseSlots<>(nodeArrayLength);
+                }
+                c.nodes.set(minV, new Node<>(key, value));
             } else {
                 value = node.setValue(key, value);
             }
             return value;
         }
 
+        @SuppressWarnings("unchecked")
+        private V putArena(int index, K key, V value) {
+            ArenaNode<K> node = null == arenaNodes ? null : arenaNodes.get(index);
+            if (null == node) {
+                if (null == arenaNodes) {
+                    arenaNodes = new SparseSlots<>(nodeArrayLength);
+                }
+                arenaNodes.set(index, new ArenaNode<>(arena, key, value));
+                return value;
+            }
+            return (V) node.put(arena, key, value);
+        }
+
         /**
          * {@inheritDoc}
          *
          * @return {@inheritDoc}
          */
-        RangePair<K, V>[] nodes() {
-            return nodes;
+        @Override
+        boolean hasNode(int index) {
+            if (null == arena) {
+                return null != node(index);
+            }
+            return null != arenaNodes && null != arenaNodes.get(index);
         }
 
         /**
@@ -153,8 +194,32 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
          *
          * @return {@inheritDoc}
          */
-        Range<K, V>[] nodeChildrenRanges() {
-            return nodeChildrenRanges;
+        @SuppressWarnings("unchecked")
+        @Override
+        V value(int index, K key) {
+            if (null == arena) {
+                return super.value(index, key);
+            }
+            ArenaNode<K> node = null == arenaNodes ? null : arenaNodes.get(index);
+            return null == node ? null : (V) node.get(arena, key);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        RangePair<K, V> node(int index) {
+            return null == nodes ? null : nodes.get(index);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        Range<K, V> childRange(int index) {
+            return null == nodeChildrenRanges ? null : nodeChildrenRanges.get(index);
         }
 
     }
@@ -162,6 +227,9 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
     /**
      * 结点对象
      *
+     * <p>结点首个键值对直接存放于结点中，只有在发生hash冲突时才创建{@link CollisionBucket}，
+     * 冲突的值存放于与之并行的值数组中。
+     *
      * @author Aberic on 2018/10/7 15:25
      * @version 1.0
      * @see MemoryRange
@@ -173,17 +241,14 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
         K key;
         /** 存储v */
         V value;
-        /** 存储k-v */
-        HashMap<K, V> map;
+        /** 冲突键索引，未发生冲突时为{@code null} */
+        CollisionBucket<K> bucket;
+        /** 冲突键对应的值，与冲突键索引中的键数组并行 */
+        Object[] values;
 
         Node(K key, V value) {
-            if (key instanceof Integer) {
-                this.key = key;
-                this.value = value;
-            } else {
-                map = new HashMap<>();
-                map.put(key, value);
-            }
+            this.key = key;
+            this.value = value;
         }
 
         /**
@@ -193,10 +258,7 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
          */
         @Override
         public final K getKey() {
-            if (null != key) {
-                return key;
-            }
-            return map.size() > 0 ? map.keySet().iterator().next() : null;
+            return key;
         }
 
         /**
@@ -204,17 +266,17 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
          *
          * @return {@inheritDoc}
          */
+        @SuppressWarnings("unchecked")
         @Override
         public final V getValue(K key) {
-            if (key instanceof Integer) {
+            if (key instanceof Integer || this.key == key || this.key.equals(key)) {
                 return value;
             }
-            for (HashMap.Entry<K, V> entry : map.entrySet()) {
-                if (entry.getKey() == key || entry.getKey().equals(key)) {
-                    return entry.getValue();
-                }
+            if (null == bucket) {
+                return null;
             }
-            return null;
+            int index = bucket.indexOf(key);
+            return index < 0 ? null : (V) values[index];
         }
 
         /**
@@ -222,23 +284,114 @@ class TreeMemoryMap<K, V> extends AbstractTreeMap<K, V> implements Serializable
          *
          * @return {@inheritDoc}
          */
+        @SuppressWarnings("unchecked")
         @Override
         public final V setValue(K key, V newValue) {
-            if (key instanceof Integer) {
+            if (key instanceof Integer || this.key == key || this.key.equals(key)) {
                 V oldValue = value;
                 value = newValue;
                 return oldValue;
             }
-            for (HashMap.Entry<K, V> entry : map.entrySet()) {
-                if (entry.getKey() == key || entry.getKey().equals(key)) {
-                    V oldValue = entry.getValue();
-                    entry.setValue(newValue);
-                    return oldValue;
+            int index;
+            if (null == bucket) {
+                bucket = new CollisionBucket<>(key);
+                values = new Object[bucket.capacity()];
+                index = 0;
+            } else if ((index = bucket.indexOf(key)) >= 0) {
+                V oldValue = (V) values[index];
+                values[index] = newValue;
+                return oldValue;
+            } else {
+                index = bucket.add(key);
+                if (values.length < bucket.capacity()) {
+                    values = Arrays.copyOf(values, bucket.capacity());
                 }
             }
+            values[index] = newValue;
             return newValue;
         }
 
     }
 
+    /**
+     * 值存放于堆外存储区的结点对象，结点中仅保存值的句柄
+     *
+     * <p>存储区由所属结点范围对象在每次读写时传入，结点自身不持有存储区引用，因此堆外结点不是{@link RangePair}，
+     * 只存放于{@link MemoryRange#arenaNodes}中，仅由所属结点范围对象访问。
+     * 冲突处理与{@link Node}一致，冲突的值句柄存放于与{@link CollisionBucket}并行的句柄数组中。
+     *
+     * @author agent on 2026/10/17 06:13
+     * @version 1.0
+     * @see ValueArena
+     * @since 1.0
+     */
+    static class ArenaNode<K> {
+
+        /** 存储k */
+        K key;
+        /** 存储v在堆外存储区中的句柄 */
+        long handle;
+        /** 冲突键索引，未发生冲突时为{@code null} */
+        CollisionBucket<K> bucket;
+        /** 冲突键对应的值句柄，与冲突键索引中的键数组并行 */
+        long[] handles;
+
+        ArenaNode(ValueArena arena, K key, Object value) {
+            this.key = key;
+            this.handle = arena.put(ValueArena.NULL, value);
+        }
+
+        /**
+         * 从所属存储区中读取键对应的值
+         *
+         * @param arena 所属堆外值存储区
+         * @param key   键
+         * @return 值，不存在时返回{@code null}
+         */
+        final Object get(ValueArena arena, K key) {
+            if (key instanceof Integer || this.key == key || this.key.equals(key)) {
+                return arena.get(handle);
+            }
+            if (null == bucket) {
+                return null;
+            }
+            int index = bucket.indexOf(key);
+            return index < 0 ? null : arena.get(handles[index]);
+        }
+
+        /**
+         * 将值写入所属存储区，返回值与{@link Node#setValue(Object, Object)}一致
+         *
+         * @param arena 所属堆外值存储区
+         * @param key   键
+         * @param value 值
+         * @return 覆盖写入时返回旧值，否则返回当前存入的值
+         */
+        final Object put(ValueArena arena, K key, Object value) {
+            if (key instanceof Integer || this.key == key || this.key.equals(key)) {
+                Object oldValue = arena.get(handle);
+                handle = arena.put(handle, value);
+                return oldValue;
+            }
+            int index;
+            if (null == bucket) {
+                bucket = new CollisionBucket<>(key);
+                handles = new long[bucket.capacity()];
+                index = 0;
+            } else if ((index = bucket.indexOf(key)) >= 0) {
+                Object oldValue = arena.get(handles[index]);
+                handles[index] = arena.put(handles[index], value);
+                return oldValue;
+            } else {
+                index = bucket.add(key);
+                if (handles.length < bucket.capacity()) {
+                    handles = Arrays.copyOf(handles, bucket.capacity());
+                }
+            }
+            handles[index] = arena.put(ValueArena.NULL, value);
+            return value;
+        }
+
+    }
+
 }
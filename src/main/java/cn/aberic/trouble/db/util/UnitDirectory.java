@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 哈希表中unit到B-Tree的稀疏目录。
+ *
+ * <p>hash值最大为 <tt>Integer.MAX_VALUE</tt> ，因此unit的取值范围在B-Tree规模确定后即已确定。
+ * 目录据此划分为定长的页，顶层页表在构造时一次性按unit的取值范围分配，之后不再扩容；
+ * 页在首个unit写入时创建，页中只保存已写入key的unit对应的B-Tree。
+ * 一个极大的hash值只会创建它所在的一个页和一棵B-Tree，目录增长时已有的页和B-Tree均无需复制。
+ *
+ * <p>页和B-Tree均以CAS发布，读取只做volatile读，因此可供并发读取方使用；
+ * 并发写入同一个unit时只有一个B-Tree会被发布，{@link #putIfAbsent(int, Object)}返回最终发布的那一个。
+ *
+ * @author agent on 2026/10/17 06:31
+ * @version 1.0
+ * @see HashMemoryMap
+ * @see HashConcurrentMemoryMap
+ * @since 1.0
+ */
+class UnitDirectory<T> {
+
+    /** 页长度所占最小位数 */
+    private static final int MIN_PAGE_BITS = 6;
+
+    /** 页长度所占位数，页长度约为unit取值范围的平方根，使页表与页的长度相当 */
+    private final int pageBits;
+    private final int pageMask;
+    /** 顶层页表 */
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> pages;
+    /** 已创建的B-Tree数量 */
+    private final AtomicInteger units = new AtomicInteger();
+
+    /**
+     * @param treeMaxLength 每一个unit对应B-Tree的最大值
+     */
+    UnitDirectory(int treeMaxLength) {
+        int unitCount = (Integer.MAX_VALUE - 1) / treeMaxLength + 1;
+        int bits = (32 - Integer.numberOfLeadingZeros(unitCount - 1) + 1) >>> 1;
+        pageBits = Math.max(MIN_PAGE_BITS, bits);
+        pageMask = (1 << pageBits) - 1;
+        pages = new AtomicReferenceArray<>(((unitCount - 1) >>> pageBits) + 1);
+    }
+
+    /**
+     * 获取unit对应的B-Tree
+     *
+     * @param unit hash表的数组下标
+     * @return unit对应的B-Tree，如果尚未创建则返回{@code null}
+     */
+    T get(int unit) {
+        int index = unit >>> pageBits;
+        if (index >= pages.length()) {
+            return null;
+        }
+        AtomicReferenceArray<T> page = pages.get(index);
+        return null == page ? null : page.get(unit & pageMask);
+    }
+
+    /**
+     * 如果unit尚未对应B-Tree，则将指定B-Tree发布到该unit
+     *
+     * @param unit hash表的数组下标
+     * @param tree 待发布的B-Tree
+     * @return unit最终对应的B-Tree，可能是其它写入方先发布的
+     */
+    T putIfAbsent(int unit, T tree) {
+        int index = unit >>> pageBits;
+        AtomicReferenceArray<T> page = pages.get(index);
+        if (null == page) {
+            pages.compareAndSet(index, null, new AtomicReferenceArray<>(pageMask + 1));
+            page = pages.get(index);
+        }
+        int slot = unit & pageMask;
+        if (page.compareAndSet(slot, null, tree)) {
+            units.incrementAndGet();
+            return tree;
+        }
+        return page.get(slot);
+    }
+
+    /**
+     * 已创建的B-Tree数量
+     *
+     * @return 已创建的B-Tree数量
+     */
+    int units() {
+        return units.get();
+    }
+
+}
@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDBinaryCodec;
+import cn.aberic.trouble.db.core.TDCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 堆外值存储区。
+ *
+ * <p>值经编解码器序列化后存放在按块分配的直接内存{@link ByteBuffer}中，内存表的结点仅保存一个 <tt>long</tt> 句柄，
+ * 高32位为块编号，低32位为值记录在块中的偏移。无论表中有多少数据，堆上都只剩下结点与句柄，
+ * 老年代回收不再需要扫描数据本身。
+ *
+ * <p>每条值记录的格式为：
+ * <pre>
+ * | capacity(4) | length(4) | value |
+ * </pre>
+ * 记录容量按大小分级向上取整，每两个2的幂之间等分为4级，因此取整浪费不超过25%。
+ * 覆盖写入时，如果新值不超过原记录容量且浪费不超过25%则原地写入，否则为新值分配记录，并将原记录放回其容量级别的空闲链表，
+ * 后续同级别的值优先复用空闲记录，因此反复覆盖写入时占用的直接内存不会无限增长。
+ * 超过单块大小的值独占一个块，被覆盖时整块释放。
+ *
+ * <p>取出的值必须与存入的值类型一致，因此编解码器必须为{@link TDBinaryCodec}，
+ * 且值只能是{@code null}、{@code String}、{@code byte[]}或基本类型的包装类型，其它类型在写入时被拒绝。
+ *
+ * <p>该类不是线程安全的，由所属内存表保证串行写入。
+ *
+ * @author agent on 2026/10/17 06:13
+ * @version 1.0
+ * @see HashMemoryMap
+ * @since 1.0
+ */
+class ValueArena {
+
+    /** 记录头长度 */
+    private static final int HEADER_LENGTH = 8;
+    /** 最小的记录容量 */
+    private static final int MIN_CAPACITY = 16;
+    /** 空句柄，表示不存在 */
+    static final long NULL = -1;
+
+    private final TDCodec codec;
+    private final int slabSize;
+    /** 已分配的块，独占块被释放后为{@code null} */
+    private ByteBuffer[] slabs = new ByteBuffer[16];
+    /** 已使用的块编号数量 */
+    private int slabCount;
+    /** 被释放的独占块编号，分配新块时优先复用 */
+    private int[] freeSlabs = new int[16];
+    private int freeSlabCount;
+    /** 当前顺序写入的块编号，尚未分配时为-1 */
+    private int current = -1;
+    /** 当前块中下一条记录的写入位置 */
+    private int position;
+    /** 按容量级别存放的空闲记录句柄 */
+    private long[][] free = new long[0][];
+    /** 各容量级别的空闲记录数量 */
+    private int[] freeCounts = new int[0];
+    /** 已分配的直接内存总量 */
+    private long capacity;
+    /** 空闲记录及块尾无法使用的内存总量 */
+    private long garbage;
+
+    ValueArena(TDCodec codec, int slabSize) {
+        if (!(codec instanceof TDBinaryCodec)) {
+            throw new IllegalArgumentException("off-heap memory tables require TDBinaryCodec, codec = "
+                    + codec.getClass().getName());
+        }
+        this.codec = codec;
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * 写入值
+     *
+     * @param handle 原值句柄，不存在时为{@link #NULL}
+     * @param value  值
+     * @return 新值句柄，原地覆盖时与原值句柄相同
+     * @throws IllegalArgumentException 值的类型无法原样取回
+     */
+    long put(long handle, Object value) {
+        if (!storable(value)) {
+            throw new IllegalArgumentException("value type cannot be stored off-heap, type = "
+                    + value.getClass().getName());
+        }
+        byte[] bytes = codec.encode(value);
+        if (handle != NULL) {
+            ByteBuffer slab = slabs[(int) (handle >>> 32)];
+            int offset = (int) handle;
+            int recordCapacity = slab.getInt(offset);
+            // 新值明显小于原记录容量时同样重新分配，避免记录容量只增不减
+            if (bytes.length <= recordCapacity
+                    && (recordCapacity <= MIN_CAPACITY || bytes.length > recordCapacity - recordCapacity / 4)) {
+                write(slab, offset + 4, bytes);
+                return handle;
+            }
+            release(handle, slab, recordCapacity);
+        }
+        return allocate(bytes);
+    }
+
+    /**
+     * 读取值
+     *
+     * @param handle 值句柄
+     * @return 值，句柄为{@link #NULL}时返回{@code null}
+     */
+    Object get(long handle) {
+        if (handle == NULL) {
+            return null;
+        }
+        ByteBuffer slab = slabs[(int) (handle >>> 32)].duplicate();
+        int offset = (int) handle;
+        byte[] bytes = new byte[slab.getInt(offset + 4)];
+        slab.position(offset + HEADER_LENGTH);
+        slab.get(bytes);
+        return codec.decode(bytes);
+    }
+
+    /**
+     * 值能否经{@link TDBinaryCodec}原样取回
+     *
+     * @param value 值
+     * @return 能原样取回时返回{@code true}
+     */
+    static boolean storable(Object value) {
+        return null == value || value instanceof String || value instanceof byte[] || value instanceof Integer
+                || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof Boolean
+                || value instanceof Float || value instanceof Double || value instanceof Character;
+    }
+
+    /**
+     * 值长度所属的容量级别
+     *
+     * @param length 值长度
+     * @return 容量级别，级别0的容量为{@link #MIN_CAPACITY}，其后每两个2的幂之间等分为4级
+     */
+    static int sizeClass(int length) {
+        if (length <= MIN_CAPACITY) {
+            return 0;
+        }
+        // 2^shift < length <= 2^(shift + 1)
+        int shift = 31 - Integer.numberOfLeadingZeros(length - 1);
+        return (shift - 4) * 4 + ((length - 1 - (1 << shift)) >> (shift - 2)) + 1;
+    }
+
+    /**
+     * 容量级别对应的记录容量
+     *
+     * @param sizeClass 容量级别
+     * @return 记录容量，不小于该级别中任意值的长度
+     */
+    static int classCapacity(int sizeClass) {
+        if (sizeClass == 0) {
+            return MIN_CAPACITY;
+        }
+        int shift = (sizeClass - 1) / 4 + 4;
+        return (1 << shift) + ((sizeClass - 1) % 4 + 1) * (1 << (shift - 2));
+    }
+
+    private long allocate(byte[] bytes) {
+        int sizeClass = sizeClass(bytes.length);
+        int recordCapacity = classCapacity(sizeClass);
+        if (recordCapacity < 0 || HEADER_LENGTH + recordCapacity > slabSize) {
+            // 超过单块大小的值按实际长度独占一个块
+            int slab = newSlab(HEADER_LENGTH + bytes.length);
+            return record(slabs[slab], slab, 0, bytes.length, bytes);
+        }
+        if (sizeClass < freeCounts.length && freeCounts[sizeClass] > 0) {
+            long handle = free[sizeClass][--freeCounts[sizeClass]];
+            garbage -= HEADER_LENGTH + recordCapacity;
+            return record(slabs[(int) (handle >>> 32)], (int) (handle >>> 32), (int) handle, recordCapacity, bytes);
+        }
+        int length = HEADER_LENGTH + recordCapacity;
+        if (current < 0 || position + length > slabSize) {
+            if (current >= 0) {
+                garbage += slabSize - position;
+            }
+            current = newSlab(slabSize);
+            position = 0;
+        }
+        int offset = position;
+        position += length;
+        return record(slabs[current], current, offset, recordCapacity, bytes);
+    }
+
+    private static long record(ByteBuffer slab, int slabIndex, int offset, int recordCapacity, byte[] bytes) {
+        slab.putInt(offset, recordCapacity);
+        write(slab, offset + 4, bytes);
+        return ((long) slabIndex << 32) | offset;
+    }
+
+    /**
+     * 释放被覆盖的记录，独占块整块释放，其它记录放回所属容量级别的空闲链表
+     */
+    private void release(long handle, ByteBuffer slab, int recordCapacity) {
+        int sizeClass = sizeClass(recordCapacity);
+        // 只有独占块中的记录容量不是级别容量，或超过单块大小
+        if (HEADER_LENGTH + recordCapacity > slabSize || classCapacity(sizeClass) != recordCapacity) {
+            int slabIndex = (int) (handle >>> 32);
+            slabs[slabIndex] = null;
+            capacity -= slab.capacity();
+            if (freeSlabCount == freeSlabs.length) {
+                freeSlabs = Arrays.copyOf(freeSlabs, freeSlabCount << 1);
+            }
+            freeSlabs[freeSlabCount++] = slabIndex;
+            return;
+        }
+        if (sizeClass >= freeCounts.length) {
+            free = Arrays.copyOf(free, sizeClass + 1);
+            freeCounts = Arrays.copyOf(freeCounts, sizeClass + 1);
+        }
+        if (null == free[sizeClass]) {
+            free[sizeClass] = new long[16];
+        } else if (freeCounts[sizeClass] == free[sizeClass].length) {
+            free[sizeClass] = Arrays.copyOf(free[sizeClass], freeCounts[sizeClass] << 1);
+        }
+        free[sizeClass][freeCounts[sizeClass]++] = handle;
+        garbage += HEADER_LENGTH + recordCapacity;
+    }
+
+    /**
+     * 分配新块，优先复用被释放的独占块编号
+     *
+     * @param size 块大小
+     * @return 块编号
+     */
+    private int newSlab(int size) {
+        int index;
+        if (freeSlabCount > 0) {
+            index = freeSlabs[--freeSlabCount];
+        } else {
+            if (slabCount == slabs.length) {
+                slabs = Arrays.copyOf(slabs, slabCount << 1);
+            }
+            index = slabCount++;
+        }
+        slabs[index] = ByteBuffer.allocateDirect(size);
+        capacity += size;
+        return index;
+    }
+
+    private static void write(ByteBuffer slab, int offset, byte[] bytes) {
+        slab.putInt(offset, bytes.length);
+        ByteBuffer buffer = slab.duplicate();
+        buffer.position(offset + 4);
+        buffer.put(bytes);
+    }
+
+    /**
+     * 已分配的直接内存总量，单位为字节
+     *
+     * @return 直接内存总量
+     */
+    long capacity() {
+        return capacity;
+    }
+
+    /**
+     * 空闲记录及块尾无法使用的内存总量，单位为字节，空闲记录会被后续写入复用
+     *
+     * @return 未存放值的内存总量
+     */
+    long garbage() {
+        return garbage;
+    }
+
+}
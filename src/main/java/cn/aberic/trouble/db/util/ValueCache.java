@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDCacheStats;
+import cn.aberic.trouble.db.core.TDCodec;
+import cn.aberic.trouble.db.core.TDConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 磁盘表的读缓存。
+ *
+ * <p>以 <tt>(unit, storeHash)</tt> 为键缓存从磁盘读取并解码后的值，基于Caffeine的W-TinyLFU淘汰策略，
+ * 只有访问频率高于被淘汰者的值才会被接纳，因此一次性的顺序扫描不会冲掉热点值。
+ *
+ * <p>缓存容量以估算内存占用（字节）计，由{@link TDConfig#getCacheMaxWeight()}指定，为0时不创建缓存。
+ * 值的内存占用由{@link #weigh(Object, TDCodec)}粗略估算，仅用于约束缓存规模；
+ * 字符串、字节数组、基本类型包装及集合按其内容估算，区块等其它类型按表的编解码器编码后的字节长度估算。
+ *
+ * <p>缓存中的值与调用方共享同一对象，调用方不应修改读取到的值。
+ *
+ * @author agent on 2026/10/17 06:11
+ * @version 1.0
+ * @see HashDiskMap
+ * @see HashBlockMap
+ * @since 1.0
+ */
+class ValueCache<V> {
+
+    /** 对象头及引用等固定开销的估算值 */
+    private static final int OBJECT_OVERHEAD = 16;
+    /** 编码失败而无法估算的值的默认估算值 */
+    private static final int DEFAULT_WEIGHT = 256;
+
+    private final Cache<Long, V> cache;
+    private final long maxWeight;
+
+    private ValueCache(long maxWeight, TDCodec codec) {
+        this.maxWeight = maxWeight;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Long key, V value) -> weigh(value, codec))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 根据配置创建读缓存
+     *
+     * @param config 表配置
+     * @return 读缓存，如果配置的缓存容量为0，则返回{@code null}
+     */
+    static <V> ValueCache<V> create(TDConfig config) {
+        return config.getCacheMaxWeight() > 0 ? new ValueCache<>(config.getCacheMaxWeight(), config.getCodec()) : null;
+    }
+
+    /**
+     * 将 <tt>(unit, storeHash)</tt> 合并为缓存中的键
+     */
+    private static long key(int unit, int storeHash) {
+        return ((long) unit << 32) | (storeHash & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 读取缓存中的值，未命中时通过<tt>loader</tt>从磁盘读取并放入缓存。
+     *
+     * <p>同一键的读取与{@link #put(int, int, Object)}互斥，因此读取到的旧值不会覆盖随后写入的新值
+     *
+     * @param unit      hash表的数组下标
+     * @param storeHash 真正执行存入操作的hash值
+     * @param loader    未命中时的磁盘读取，返回{@code null}时不缓存
+     * @return 值
+     */
+    V get(int unit, int storeHash, Supplier<V> loader) {
+        return cache.get(key(unit, storeHash), k -> loader.get());
+    }
+
+    /**
+     * 写入磁盘成功后更新缓存中的值
+     *
+     * @param unit      hash表的数组下标
+     * @param storeHash 真正执行存入操作的hash值
+     * @param value     值，为{@code null}时移除缓存中的值
+     */
+    void put(int unit, int storeHash, V value) {
+        if (null == value) {
+            cache.invalidate(key(unit, storeHash));
+        } else {
+            cache.put(key(unit, storeHash), value);
+        }
+    }
+
+    /**
+     * 获取当前缓存的统计快照
+     *
+     * @return 统计快照
+     */
+    TDCacheStats stats() {
+        CacheStats stats = cache.stats();
+        long weightedSize = cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+        return new TDCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.evictionWeight(),
+                weightedSize, maxWeight);
+    }
+
+    /**
+     * 粗略估算值的内存占用，单位为字节。
+     *
+     * <p>无法按内容估算的类型（如区块）以<tt>codec</tt>编码后的字节长度估算，解码后的对象通常不小于其编码长度
+     *
+     * @param value 值
+     * @param codec 表的编解码器
+     * @return 估算内存占用
+     */
+    static int weigh(Object value, TDCodec codec) {
+        if (null == value) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return OBJECT_OVERHEAD * 2 + ((CharSequence) value).length() * 2;
+        }
+        if (value instanceof byte[]) {
+            return OBJECT_OVERHEAD + ((byte[]) value).length;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return OBJECT_OVERHEAD * 2;
+        }
+        if (value instanceof Collection) {
+            int weight = OBJECT_OVERHEAD * 2;
+            for (Object element : (Collection<?>) value) {
+                weight = saturatedAdd(weight, weigh(element, codec));
+            }
+            return weight;
+        }
+        if (value instanceof Map) {
+            int weight = OBJECT_OVERHEAD * 4;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                weight = saturatedAdd(weight, saturatedAdd(OBJECT_OVERHEAD * 2,
+                        saturatedAdd(weigh(entry.getKey(), codec), weigh(entry.getValue(), codec))));
+            }
+            return weight;
+        }
+        try {
+            return saturatedAdd(OBJECT_OVERHEAD * 2, codec.encode(value).length);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return DEFAULT_WEIGHT;
+        }
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 组提交的预写日志。
+ *
+ * <p>并发写入方通过{@link #append(int, int, byte[])}将记录放入提交队列并等待，
+ * 唯一的提交线程每次取出队列中当前所有待提交记录，合并为一次写入并执行一次{@code fsync}后再统一通知所有写入方，
+ * 因此无论有多少并发写入方，每一批记录都只需付出一次落盘的代价。
+ * 不要求每批落盘时，提交线程只合并写入，由调用方通过{@link #force()}按自身的落盘策略落盘。
+ *
+ * <p>日志记录格式与{@link LogSegment}一致。打开时可通过{@link #replay(Replayer)}重放日志中的有效记录，
+ * 在日志所覆盖的写入全部落盘后，调用方可通过{@link #checkpoint()}清空日志。
+ *
+ * @author agent on 2026/10/17 06:01
+ * @version 1.0
+ * @see HashDiskMap
+ * @see LogSegment
+ * @since 1.0
+ */
+class WriteAheadLog implements Closeable {
+
+    /** 单次组提交的最大记录数 */
+    private static final int MAX_BATCH = 1024;
+    /** 关闭标记，提交线程取到该记录后提交已取出的记录并退出 */
+    private static final Pending CLOSE = new Pending(ByteBuffer.allocate(0));
+
+    private final LogSegment segment;
+    /** 每批记录写入后是否立即落盘 */
+    private final boolean forceOnCommit;
+    /** 待提交记录队列 */
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean closed = false;
+
+    WriteAheadLog(String name, File file) throws IOException {
+        this(name, file, true);
+    }
+
+    /**
+     * @param forceOnCommit 每批记录写入后是否立即落盘，为{@code false}时由调用方通过{@link #force()}落盘
+     */
+    WriteAheadLog(String name, File file, boolean forceOnCommit) throws IOException {
+        this.forceOnCommit = forceOnCommit;
+        segment = new LogSegment(0, file);
+        committer = new Thread(this::commitLoop, String.format("trouble-wal-%s", name));
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * 当前日志大小
+     *
+     * @return 日志大小
+     */
+    long size() {
+        return segment.size();
+    }
+
+    /**
+     * 将已提交的记录落盘
+     *
+     * @throws IOException 落盘失败
+     */
+    void force() throws IOException {
+        segment.force();
+    }
+
+    /**
+     * 追加一条记录，并阻塞至该记录所在批次提交完成
+     *
+     * @param unit      传入key当前Hash数组中要访问的下标
+     * @param storeHash 真正执行存入操作的hash值
+     * @param value     值字节
+     *
+     * @throws IOException 日志写入或落盘失败
+     */
+    void append(int unit, int storeHash, byte[] value) throws IOException {
+        if (closed) {
+            throw new IOException("write ahead log is closed");
+        }
+        Pending pending = new Pending(LogSegment.record(unit, storeHash, value));
+        queue.offer(pending);
+        try {
+            pending.future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private void commitLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            running = !batch.remove(CLOSE);
+            if (!batch.isEmpty()) {
+                commit(batch);
+            }
+            batch.clear();
+        }
+        queue.drainTo(batch);
+        IOException e = new IOException("write ahead log is closed");
+        for (Pending pending : batch) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 将一批记录合并为一次写入并落盘，随后通知该批次所有写入方
+     *
+     * @param batch 待提交记录
+     */
+    private void commit(List<Pending> batch) {
+        int length = 0;
+        for (Pending pending : batch) {
+            length += pending.record.remaining();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (Pending pending : batch) {
+            buffer.put(pending.record);
+        }
+        buffer.flip();
+        try {
+            segment.append(buffer);
+            if (forceOnCommit) {
+                segment.force();
+            }
+            for (Pending pending : batch) {
+                pending.future.complete(null);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 顺序重放日志中的所有有效记录
+     *
+     * @param replayer 记录重放者
+     *
+     * @throws IOException 日志读取失败
+     */
+    void replay(Replayer replayer) throws IOException {
+        List<long[]> records = new ArrayList<>();
+        segment.scan((unit, storeHash, offset, length) -> records.add(new long[]{unit, storeHash, offset, length}));
+        for (long[] record : records) {
+            replayer.replay((int) record[0], (int) record[1], segment.read(record[2], (int) record[3]));
+        }
+    }
+
+    /**
+     * 清空日志，调用方必须保证日志所覆盖的写入均已落盘，且期间没有新的追加
+     *
+     * @throws IOException 日志清空失败
+     */
+    void checkpoint() throws IOException {
+        segment.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.offer(CLOSE);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+    }
+
+    /** 日志记录重放者 */
+    interface Replayer {
+
+        /**
+         * 重放一条记录
+         *
+         * @param unit      传入key当前Hash数组中要访问的下标
+         * @param storeHash 真正执行存入操作的hash值
+         * @param value     值字节
+         */
+        void replay(int unit, int storeHash, byte[] value);
+
+    }
+
+    /** 等待提交的记录 */
+    private static class Pending {
+
+        private final ByteBuffer record;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Pending(ByteBuffer record) {
+            this.record = record;
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 内存表读写热路径的内存分配检查。
+ *
+ * <p>对已存在的key反复执行put、get及{@link Range#position(int)}，通过线程已分配字节数统计稳态下每次操作分配的字节数，
+ * 任一几何参数下每次操作分配不为0时以非0状态退出。运行时需使用支持线程内存分配统计的HotSpot虚拟机。
+ *
+ * @author agent on 2026/10/17 07:00
+ * @version 1.0
+ * @see HashMemoryMap
+ * @since 1.0
+ */
+public class AllocationTest {
+
+    /** 每种几何参数下写入的key数量 */
+    private static final int KEYS = 100000;
+    /** 预热及统计的轮数 */
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Integer[] keys = new Integer[KEYS + 1];
+        String[] values = new String[KEYS + 1];
+        for (int i = 1; i <= KEYS; i++) {
+            keys[i] = i;
+            values[i] = "v" + i;
+        }
+        boolean failed = false;
+        for (int[] tree : new int[][]{{0, 0}, {4, 3}, {2, 7}, {3, 31}, {6, 1}}) {
+            HashMemoryMap<Object, Object> map = new HashMemoryMap<>(new TDConfig().setTree(tree[0], tree[1]));
+            Range<Object, Object> range = new TreeMemoryMap<>(tree[0], tree[1]).range();
+            for (int i = 1; i <= KEYS; i++) {
+                map.put(i, keys[i], values[i]);
+            }
+            long sum = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                sum += run(map, range, keys, values);
+            }
+            long start = bean.getThreadAllocatedBytes(thread);
+            for (int round = 0; round < ROUNDS; round++) {
+                sum += run(map, range, keys, values);
+            }
+            long bytes = bean.getThreadAllocatedBytes(thread) - start;
+            double perOp = (double) bytes / ((long) ROUNDS * KEYS);
+            System.out.println("tree = " + tree[0] + "/" + tree[1] + " | B/op = " + perOp + " | sum = " + sum);
+            if (perOp >= 1) {
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.out.println("steady state put/get allocates");
+            System.exit(1);
+        }
+    }
+
+    private static long run(HashMemoryMap<Object, Object> map, Range<Object, Object> range, Integer[] keys, String[] values) {
+        long sum = 0;
+        for (int i = 1; i <= KEYS; i++) {
+            map.put(i, keys[i], values[i]);
+            if (map.get(i, keys[i]) != values[i]) {
+                throw new IllegalStateException("wrong value, key = " + i);
+            }
+            int storeHash = (i - 1) % range.treeMaxLength + 1;
+            sum += range.nodeDegree(range.position(storeHash));
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 区块文件存储的检查。
+ *
+ * <p>检查区块跨区块文件滚动写入后按高度取回、拒绝不连续的高度且不写入任何数据、重新打开后继续写入，
+ * 以及索引记录被截断、索引指向的区块数据丢失（模拟进程崩溃）或索引记录高度不连续时，重新打开后只保留此前连续且完整的区块。
+ * 任一检查失败时以非0状态退出。
+ *
+ * @author agent on 2026/10/17 07:43
+ * @version 1.0
+ * @see BlockStorage
+ * @since 1.0
+ */
+public class BlockStorageTest {
+
+    private static final String NAME = "block";
+    /** 首个区块的高度 */
+    private static final int BASE = 5;
+    /** 索引记录长度 */
+    private static final int INDEX_RECORD_LENGTH = 20;
+
+    private static boolean failed;
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("tdb-block").toFile();
+        try {
+            TDConfig config = new TDConfig().setDBPath(dir.getPath()).setBlockFileMaxSize(4 * 1024);
+            int top = rollAndReopen(config);
+            top = continuity(config, top);
+            top = tornIndex(config, top);
+            top = lostData(config, top);
+            bogusIndex(config, top);
+        } finally {
+            delete(dir);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("block storage checks passed");
+    }
+
+    /**
+     * 区块跨多个区块文件写入，关闭并重新打开后按高度取回，并可继续写入下一个高度
+     *
+     * @return 当前最高区块高度
+     */
+    private static int rollAndReopen(TDConfig config) throws IOException {
+        BlockStorage storage = new BlockStorage(NAME, config);
+        int top = BASE + 199;
+        for (int height = BASE; height <= top; height++) {
+            storage.write(height, block(height));
+        }
+        check(storage, top, "before close");
+        storage.close();
+        if (!new File(TDConfig.storageBlockFilePath(config.getDbPath(), NAME, 2)).exists()) {
+            fail("block files did not roll");
+        }
+        storage = new BlockStorage(NAME, config);
+        check(storage, top, "reopen");
+        storage.write(++top, block(top));
+        check(storage, top, "write after reopen");
+        storage.close();
+        return top;
+    }
+
+    /**
+     * 低于首个区块或跳过下一个高度的区块被拒绝，且区块文件及索引文件均未被写入
+     *
+     * @return 当前最高区块高度
+     */
+    private static int continuity(TDConfig config, int top) throws IOException {
+        BlockStorage storage = new BlockStorage(NAME, config);
+        long[] before = sizes(config);
+        for (int height : new int[]{BASE - 1, top + 2, Integer.MAX_VALUE}) {
+            try {
+                storage.write(height, block(height));
+                fail("accepted height " + height + " after " + top);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        if (!Arrays.equals(before, sizes(config))) {
+            fail("rejected heights wrote data, sizes " + Arrays.toString(before) + " -> "
+                    + Arrays.toString(sizes(config)));
+        }
+        check(storage, top, "after rejection");
+        storage.close();
+        storage = new BlockStorage(NAME, config);
+        check(storage, top, "reopen after rejection");
+        storage.close();
+        return top;
+    }
+
+    /**
+     * 索引文件末尾被截断的索引记录在重新打开时被丢弃，之后写入的区块在再次打开后仍可取回
+     *
+     * @return 当前最高区块高度
+     */
+    private static int tornIndex(TDConfig config, int top) throws IOException {
+        File index = new File(TDConfig.storageBlockIndexFilePath(config.getDbPath(), NAME));
+        Files.write(index.toPath(), new byte[]{0, 0, 0, 1, 0, 0, 0}, StandardOpenOption.APPEND);
+        BlockStorage storage = new BlockStorage(NAME, config);
+        check(storage, top, "torn index");
+        if (index.length() % INDEX_RECORD_LENGTH != 0) {
+            fail("torn index record was not truncated, size " + index.length());
+        }
+        storage.write(++top, block(top));
+        storage.close();
+        storage = new BlockStorage(NAME, config);
+        check(storage, top, "write after torn index");
+        storage.close();
+        return top;
+    }
+
+    /**
+     * 最高区块的数据未完整写入区块文件时，重新打开后丢弃该区块，并可重新写入该高度
+     *
+     * @return 当前最高区块高度
+     */
+    private static int lostData(TDConfig config, int top) throws IOException {
+        File[] files = blockFiles(config);
+        File last = files[files.length - 1];
+        try (RandomAccessFile file = new RandomAccessFile(last, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        BlockStorage storage = new BlockStorage(NAME, config);
+        check(storage, top - 1, "lost data");
+        storage.write(top, block(top));
+        storage.close();
+        storage = new BlockStorage(NAME, config);
+        check(storage, top, "rewrite after lost data");
+        storage.close();
+        return top;
+    }
+
+    /**
+     * 高度不连续的索引记录在重新打开时被丢弃，之后可继续写入下一个高度
+     */
+    private static void bogusIndex(TDConfig config, int top) throws IOException {
+        File index = new File(TDConfig.storageBlockIndexFilePath(config.getDbPath(), NAME));
+        long size = index.length();
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+        record.putInt(top + 10).putInt(0).putLong(0).putInt(1);
+        Files.write(index.toPath(), record.array(), StandardOpenOption.APPEND);
+        BlockStorage storage = new BlockStorage(NAME, config);
+        check(storage, top, "bogus index");
+        if (index.length() != size) {
+            fail("bogus index record was not truncated, size " + index.length() + " expected " + size);
+        }
+        storage.write(++top, block(top));
+        storage.close();
+        storage = new BlockStorage(NAME, config);
+        check(storage, top, "write after bogus index");
+        storage.close();
+    }
+
+    /**
+     * 高度为 [BASE, top] 的区块全部存在且内容正确，范围外的高度不存在
+     */
+    private static void check(BlockStorage storage, int top, String step) throws IOException {
+        if (storage.size() != top - BASE + 1) {
+            fail(step + ": size " + storage.size() + " expected " + (top - BASE + 1));
+        }
+        for (int height = BASE; height <= top; height++) {
+            byte[] bytes = storage.read(height);
+            if (!storage.contains(height) || !Arrays.equals(block(height), bytes)) {
+                fail(step + ": block " + height + " was " + (null == bytes ? "missing" : new String(bytes)));
+                return;
+            }
+        }
+        if (storage.contains(BASE - 1) || storage.contains(top + 1) || null != storage.read(top + 1)) {
+            fail(step + ": found a block outside [" + BASE + ", " + top + "]");
+        }
+    }
+
+    private static byte[] block(int height) {
+        return (height + ":" + new String(new char[(height * 37) % 300]).replace('\0', 'b')).getBytes();
+    }
+
+    /**
+     * 按编号排列的区块文件
+     */
+    private static File[] blockFiles(TDConfig config) {
+        List<File> files = new ArrayList<>();
+        File file = new File(TDConfig.storageBlockFilePath(config.getDbPath(), NAME, 0));
+        while (file.exists()) {
+            files.add(file);
+            file = new File(TDConfig.storageBlockFilePath(config.getDbPath(), NAME, files.size()));
+        }
+        return files.toArray(new File[0]);
+    }
+
+    private static long[] sizes(TDConfig config) {
+        File[] files = blockFiles(config);
+        long[] sizes = new long[files.length + 1];
+        for (int i = 0; i < files.length; i++) {
+            sizes[i] = files[i].length();
+        }
+        sizes[files.length] = new File(TDConfig.storageBlockIndexFilePath(config.getDbPath(), NAME)).length();
+        return sizes;
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<File> files = Files.walk(dir.toPath()).sorted(Comparator.reverseOrder()).map(Path::toFile)) {
+            files.forEach(File::delete);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println(message);
+        failed = true;
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程安全的内存哈希表的检查。
+ *
+ * <p>多个写入方同时写入同一批hash值大量冲突的key，检查每个key恰好被插入一次，其余写入均返回被覆盖的旧值，
+ * 且旧值与最终值恰好组成所有写入方写入的值；数据大小与key的数量一致。
+ * 写入期间的读取方只会读取到{@code null}或该key被写入过的值。任一检查失败时以非0状态退出。
+ *
+ * @author agent on 2026/10/17 07:46
+ * @version 1.0
+ * @see HashConcurrentMemoryMap
+ * @see ConcurrentTreeMemoryMap
+ * @since 1.0
+ */
+public class HashConcurrentMemoryMapTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int KEYS = 20000;
+    /** 不同hash值的数量，远小于key的数量，使同一槽位上的写入相互竞争 */
+    private static final int HASHES = 500;
+    private static final int ROUNDS = 5;
+
+    private static volatile boolean failed;
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < ROUNDS && !failed; round++) {
+            race();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("concurrent memory map checks passed");
+    }
+
+    private static void race() throws Exception {
+        HashConcurrentMemoryMap<String, String> map = new HashConcurrentMemoryMap<>();
+        // 每个写入方每个key的put返回值
+        String[][] returned = new String[WRITERS][KEYS];
+        CyclicBarrier start = new CyclicBarrier(WRITERS + READERS);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+        Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                await(start);
+                // 各写入方从不同的位置、按不同的方向写入所有key，增加同时写入同一个key的机会
+                for (int i = 0; i < KEYS; i++) {
+                    int key = ((writer % 2 == 0 ? i : KEYS - 1 - i) + writer * (KEYS / WRITERS)) % KEYS;
+                    returned[writer][key] = map.put(hash(key), key(key), value(writer, key));
+                }
+            });
+            writers[w].start();
+        }
+        Thread[] readers = new Thread[READERS];
+        for (int r = 0; r < READERS; r++) {
+            readers[r] = new Thread(() -> {
+                await(start);
+                while (writing.get()) {
+                    for (int key = 0; key < KEYS; key += 7) {
+                        String value = map.get(hash(key), key(key));
+                        if (null != value && !value.endsWith(":" + key)) {
+                            fail("read " + value + " for key " + key);
+                            return;
+                        }
+                        reads.incrementAndGet();
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (map.size() != KEYS) {
+            fail("size " + map.size() + " expected " + KEYS);
+        }
+        for (int key = 0; key < KEYS && !failed; key++) {
+            check(map, returned, key);
+        }
+        System.out.println("keys = " + KEYS + " | writers = " + WRITERS + " | concurrent reads = " + reads.get());
+    }
+
+    /**
+     * 同一个key恰好被一个写入方插入，其余写入方返回的旧值与最终值恰好组成所有写入方写入的值
+     */
+    private static void check(HashConcurrentMemoryMap<String, String> map, String[][] returned, int key) {
+        Set<String> values = new HashSet<>();
+        int inserts = 0;
+        for (int writer = 0; writer < WRITERS; writer++) {
+            String value = returned[writer][key];
+            if (value(writer, key).equals(value)) {
+                inserts++;
+            } else if (!values.add(value)) {
+                fail("key " + key + " returned " + value + " twice");
+                return;
+            }
+        }
+        String last = map.get(hash(key), key(key));
+        if (inserts != 1 || !values.add(last) || values.size() != WRITERS) {
+            fail("key " + key + " was inserted " + inserts + " times, returned " + values);
+            return;
+        }
+        for (int writer = 0; writer < WRITERS; writer++) {
+            if (!values.contains(value(writer, key)) && !value(writer, key).equals(returned[writer][key])) {
+                fail("key " + key + " lost the write of writer " + writer);
+                return;
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        return key % HASHES + 1;
+    }
+
+    private static String key(int key) {
+        return "key-" + key;
+    }
+
+    private static String value(int writer, int key) {
+        return writer + ":" + key;
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println(message);
+        failed = true;
+    }
+
+}
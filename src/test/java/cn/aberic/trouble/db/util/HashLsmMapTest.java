@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+import cn.aberic.trouble.db.core.TDDurability;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * LSM-Tree表的检查。
+ *
+ * <p>检查内存表写满后写出为第0层有序表、第0层有序表合并至下一层、关闭并重新打开、
+ * 未关闭即重新打开（模拟进程崩溃）且预写日志尾部记录被截断、写出或合并中断后遗留临时文件等情况下，
+ * 读取到的始终是每个key最后写入的值，且后台任务完成后不遗留多余的预写日志及第0层有序表。任一检查失败时以非0状态退出。
+ *
+ * @author agent on 2026/10/17 07:46
+ * @version 1.0
+ * @see HashLsmMap
+ * @see SSTable
+ * @since 1.0
+ */
+public class HashLsmMapTest {
+
+    private static final String NAME = "lsm";
+    private static final int KEYS = 4000;
+    private static final int LEVEL0_MAX_FILES = 2;
+    /** 等待后台写出及合并完成的最长时间，单位为毫秒 */
+    private static final long QUIET_TIMEOUT_MILLIS = 10000L;
+
+    private static boolean failed;
+
+    public static void main(String[] args) throws Exception {
+        File dir = Files.createTempDirectory("tdb-lsm").toFile();
+        try {
+            TDConfig config = new TDConfig().setDBPath(dir.getPath()).setLsm(8 * 1024, LEVEL0_MAX_FILES)
+                    .setDurability(TDDurability.NONE);
+            String[] latest = new String[KEYS];
+            flushAndMerge(config, latest);
+            crash(config, latest);
+            interruptedMerge(config, latest);
+        } finally {
+            delete(dir);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("lsm checks passed");
+    }
+
+    /**
+     * 多轮覆盖写入使内存表多次写出并逐层合并，写入期间及合并完成后均取回每个key最后写入的值，关闭并重新打开后同样取回
+     */
+    private static void flushAndMerge(TDConfig config, String[] latest) throws Exception {
+        Housekeeper housekeeper = new Housekeeper("lsm-test", 1, 0);
+        HashLsmMap<Integer, String> map = new HashLsmMap<>(NAME, config, housekeeper);
+        for (int round = 0; round < 3; round++) {
+            write(map, latest, round, 1);
+            check(map, latest, "round " + round);
+        }
+        awaitQuiet(config, "flush and merge");
+        check(map, latest, "after merge");
+        if (tables(config) == levelFiles(config, 0)) {
+            fail("level 0 was never merged");
+        }
+        map.close();
+        housekeeper.close();
+        housekeeper = new Housekeeper("lsm-test", 1, 0);
+        map = new HashLsmMap<>(NAME, config, housekeeper);
+        check(map, latest, "reopen");
+        map.close();
+        housekeeper.close();
+    }
+
+    /**
+     * 每次写入均落盘预写日志，未关闭即重新打开且预写日志尾部被截断时，已返回的写入均可取回，
+     * 重放的预写日志写出后被删除
+     */
+    private static void crash(TDConfig config, String[] latest) throws Exception {
+        TDConfig always = new TDConfig().setDBPath(config.getDbPath()).setLsm(config.getMemtableMaxSize(),
+                config.getLsmLevel0MaxFiles()).setDurability(TDDurability.ALWAYS);
+        Housekeeper housekeeper = new Housekeeper("lsm-test", 1, 0);
+        HashLsmMap<Integer, String> map = new HashLsmMap<>(NAME, always, housekeeper);
+        awaitQuiet(always, "before crash");
+        // 写入量小于内存表上限，不会触发写出
+        write(map, latest, 3, 50);
+        File[] wals = wals(always);
+        if (wals.length != 1 || wals[0].length() == 0) {
+            fail("expected one non-empty log before the crash, found " + wals.length);
+        } else {
+            Files.write(wals[0].toPath(), new byte[]{9, 9, 9, 9, 0, 0}, StandardOpenOption.APPEND);
+        }
+        // 不关闭，直接以新的对象重新打开
+        Housekeeper next = new Housekeeper("lsm-test", 1, 0);
+        HashLsmMap<Integer, String> reopened = new HashLsmMap<>(NAME, always, next);
+        check(reopened, latest, "crash");
+        awaitQuiet(always, "after crash");
+        check(reopened, latest, "replayed log flushed");
+        reopened.close();
+        next.close();
+        housekeeper.close();
+    }
+
+    /**
+     * 写出或合并中断时遗留的临时有序表在重新打开时被删除，且不影响已有的值
+     */
+    private static void interruptedMerge(TDConfig config, String[] latest) throws Exception {
+        File tmp = new File(TDConfig.storageLsmTableFilePath(config.getDbPath(), NAME, 1, 9999) + ".tmp");
+        Files.write(tmp.toPath(), new byte[]{1, 2, 3});
+        Housekeeper housekeeper = new Housekeeper("lsm-test", 1, 0);
+        HashLsmMap<Integer, String> map = new HashLsmMap<>(NAME, config, housekeeper);
+        check(map, latest, "interrupted merge");
+        if (tmp.exists()) {
+            fail("merge leftover " + tmp.getName() + " was not removed");
+        }
+        write(map, latest, 4, 1);
+        awaitQuiet(config, "after interrupted merge");
+        map.close();
+        housekeeper.close();
+        housekeeper = new Housekeeper("lsm-test", 1, 0);
+        map = new HashLsmMap<>(NAME, config, housekeeper);
+        check(map, latest, "reopen after interrupted merge");
+        map.close();
+        housekeeper.close();
+    }
+
+    /**
+     * 以轮次<tt>round</tt>覆盖写入每隔<tt>step</tt>个的key
+     */
+    private static void write(HashLsmMap<Integer, String> map, String[] latest, int round, int step) {
+        for (int key = 0; key < KEYS; key += step) {
+            latest[key] = key + ":" + round + ":" + new String(new char[(key * 7 + round * 13) % 40])
+                    .replace('\0', 'x');
+            map.put(key + 1, key, latest[key]);
+        }
+    }
+
+    private static void check(HashLsmMap<Integer, String> map, String[] latest, String step) {
+        for (int key = 0; key < KEYS; key++) {
+            String value = map.get(key + 1, key);
+            if (!latest[key].equals(value)) {
+                fail(step + ": key " + key + " expected " + latest[key] + " but was " + value);
+                return;
+            }
+        }
+        if (map.containsKey(KEYS + 1, KEYS)) {
+            fail(step + ": found a key that was never written");
+        }
+    }
+
+    /**
+     * 等待后台写出及合并完成，即只剩当前内存表的预写日志、第0层有序表未达到合并上限且没有临时文件
+     */
+    private static void awaitQuiet(TDConfig config, String step) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + QUIET_TIMEOUT_MILLIS;
+        while (wals(config).length > 1 || levelFiles(config, 0) >= LEVEL0_MAX_FILES || tmpFiles(config) > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(step + ": background flush and merge did not finish, logs = " + wals(config).length
+                        + " | level 0 tables = " + levelFiles(config, 0));
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static File[] files(TDConfig config) {
+        File[] files = new File(TDConfig.storageLsmDirPath(config.getDbPath(), NAME)).listFiles();
+        return null == files ? new File[0] : files;
+    }
+
+    private static File[] wals(TDConfig config) {
+        return Stream.of(files(config)).filter(file -> TDConfig.storageLsmWalId(file.getName()) >= 0)
+                .toArray(File[]::new);
+    }
+
+    private static long levelFiles(TDConfig config, int level) {
+        return Stream.of(files(config)).map(file -> TDConfig.storageLsmTableLevelAndId(file.getName()))
+                .filter(levelAndId -> null != levelAndId && levelAndId[0] == level).count();
+    }
+
+    private static long tables(TDConfig config) {
+        return Stream.of(files(config)).filter(file -> null != TDConfig.storageLsmTableLevelAndId(file.getName()))
+                .count();
+    }
+
+    private static long tmpFiles(TDConfig config) {
+        return Stream.of(files(config)).filter(file -> file.getName().endsWith(".tmp")).count();
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<File> files = Files.walk(dir.toPath()).sorted(Comparator.reverseOrder()).map(Path::toFile)) {
+            files.forEach(File::delete);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println(message);
+        failed = true;
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 以只追加段文件存储值的磁盘映射的检查。
+ *
+ * <p>检查值写入后跨段文件滚动、重新打开、未关闭即重新打开（模拟进程崩溃）、段文件尾部记录被截断、
+ * 压缩及压缩中断后遗留临时文件等情况下，读取到的始终是每个键最后写入的值。任一检查失败时以非0状态退出。
+ *
+ * @author agent on 2026/10/17 07:38
+ * @version 1.0
+ * @see LogDiskMap
+ * @see LogSegment
+ * @since 1.0
+ */
+public class LogDiskMapTest {
+
+    private static final String NAME = "log";
+    private static final int KEYS = 2000;
+
+    private static boolean failed;
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("tdb-log").toFile();
+        try {
+            TDConfig config = new TDConfig().setDBPath(dir.getPath()).setSegmentMaxSize(16 * 1024)
+                    .setCompaction(0.5, 0, 1000);
+            String[] latest = new String[KEYS];
+            rollAndReopen(config, latest);
+            crash(config, latest);
+            tornTail(config, latest);
+            compaction(config, latest);
+            interruptedCompaction(config, latest);
+        } finally {
+            delete(dir);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("log segment checks passed");
+    }
+
+    /**
+     * 多轮覆盖写入后段文件滚动为多个，关闭并重新打开后取回每个键最后写入的值
+     */
+    private static void rollAndReopen(TDConfig config, String[] latest) {
+        LogDiskMap.LogRange<Integer, String> range = new LogDiskMap.LogRange<>(NAME, config);
+        write(range, latest, 0, 5);
+        check(range, latest, "before close");
+        range.close();
+        if (segments(config).length < 10) {
+            fail("segments did not roll, found " + Arrays.toString(segments(config)));
+        }
+        range = new LogDiskMap.LogRange<>(NAME, config);
+        check(range, latest, "reopen");
+        range.close();
+    }
+
+    /**
+     * 未关闭即重新打开时，已返回的写入均可取回
+     */
+    private static void crash(TDConfig config, String[] latest) {
+        LogDiskMap.LogRange<Integer, String> range = new LogDiskMap.LogRange<>(NAME, config);
+        write(range, latest, 5, 6);
+        // 不关闭，直接以新的对象重新打开
+        LogDiskMap.LogRange<Integer, String> reopened = new LogDiskMap.LogRange<>(NAME, config);
+        check(reopened, latest, "crash");
+        reopened.close();
+        range.close();
+    }
+
+    /**
+     * 最新段文件尾部的不完整记录在重新打开时被截断，之后的写入在再次打开后仍可取回
+     */
+    private static void tornTail(TDConfig config, String[] latest) throws IOException {
+        File[] segments = segments(config);
+        File last = segments[segments.length - 1];
+        long size = last.length();
+        Files.write(last.toPath(), new byte[]{0, 0, 0, 1, 0, 0, 0, 7, 0, 0}, StandardOpenOption.APPEND);
+        LogDiskMap.LogRange<Integer, String> range = new LogDiskMap.LogRange<>(NAME, config);
+        check(range, latest, "torn tail");
+        if (last.length() != size) {
+            fail("torn tail was not truncated, size " + last.length() + " expected " + size);
+        }
+        write(range, latest, 6, 7);
+        range.close();
+        range = new LogDiskMap.LogRange<>(NAME, config);
+        check(range, latest, "write after torn tail");
+        range.close();
+    }
+
+    /**
+     * 压缩后段文件总大小明显减小，压缩前后及重新打开后均取回每个键最后写入的值
+     */
+    private static void compaction(TDConfig config, String[] latest) {
+        Housekeeper housekeeper = new Housekeeper("log-test", 1, 0);
+        LogDiskMap.LogRange<Integer, String> range = new LogDiskMap.LogRange<>(NAME, config);
+        long before = size(config);
+        range.compact(housekeeper);
+        long after = size(config);
+        check(range, latest, "after compaction");
+        if (after * 2 > before) {
+            fail("compaction did not reclaim space, " + before + " -> " + after);
+        }
+        // 压缩后继续覆盖写入并再次压缩
+        write(range, latest, 7, 8);
+        range.compact(housekeeper);
+        check(range, latest, "write after compaction");
+        range.close();
+        range = new LogDiskMap.LogRange<>(NAME, config);
+        check(range, latest, "reopen after compaction");
+        range.close();
+        housekeeper.close();
+    }
+
+    /**
+     * 压缩在替换段文件前中断时遗留的临时文件在重新打开时被删除，且不影响已有的值
+     */
+    private static void interruptedCompaction(TDConfig config, String[] latest) throws IOException {
+        File[] segments = segments(config);
+        File tmp = new File(segments[segments.length - 1].getPath() + ".tmp");
+        Files.write(tmp.toPath(), LogSegment.record(0, 1, "stale".getBytes()).array());
+        LogDiskMap.LogRange<Integer, String> range = new LogDiskMap.LogRange<>(NAME, config);
+        check(range, latest, "interrupted compaction");
+        if (tmp.exists()) {
+            fail("compaction leftover " + tmp.getName() + " was not removed");
+        }
+        range.close();
+    }
+
+    /**
+     * 以轮次 [from, to) 依次覆盖写入所有键，每轮值的长度不同
+     */
+    private static void write(LogDiskMap.LogRange<Integer, String> range, String[] latest, int from, int to) {
+        for (int round = from; round < to; round++) {
+            for (int key = 0; key < KEYS; key++) {
+                latest[key] = key + ":" + round + ":" + new String(new char[(key * 7 + round * 13) % 64])
+                        .replace('\0', 'x');
+                range.put(unit(key), storeHash(key), key, latest[key]);
+            }
+        }
+    }
+
+    private static void check(LogDiskMap.LogRange<Integer, String> range, String[] latest, String step) {
+        for (int key = 0; key < KEYS; key++) {
+            String value = range.get(unit(key), storeHash(key), key);
+            if (!latest[key].equals(value)) {
+                fail(step + ": key " + key + " expected " + latest[key] + " but was " + value);
+                return;
+            }
+        }
+        if (range.contains(unit(KEYS), storeHash(KEYS))) {
+            fail(step + ": found a key that was never written");
+        }
+    }
+
+    private static int unit(int key) {
+        return key % 4;
+    }
+
+    private static int storeHash(int key) {
+        return key / 4 + 1;
+    }
+
+    private static File[] segments(TDConfig config) {
+        File[] files = new File(TDConfig.storageLogDirPath(config.getDbPath(), NAME))
+                .listFiles(file -> TDConfig.storageLogSegmentId(file.getName()) >= 0);
+        if (null == files) {
+            return new File[0];
+        }
+        Arrays.sort(files, Comparator.comparingInt(file -> TDConfig.storageLogSegmentId(file.getName())));
+        return files;
+    }
+
+    private static long size(TDConfig config) {
+        return Arrays.stream(segments(config)).mapToLong(File::length).sum();
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<File> files = Files.walk(dir.toPath()).sorted(Comparator.reverseOrder()).map(Path::toFile)) {
+            files.forEach(File::delete);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println(message);
+        failed = true;
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 以槽位映射文件及两代值堆文件存储值的磁盘映射的检查。
+ *
+ * <p>检查覆盖写入不同长度的值、重新打开、未关闭即重新打开（模拟进程崩溃）、压缩、
+ * 压缩在两代值堆文件同时存在时被中断并重新打开等情况下，读取到的始终是每个键最后写入的值，
+ * 且压缩完成后每个unit只保留一代值堆文件。任一检查失败时以非0状态退出。
+ *
+ * @author agent on 2026/10/17 07:40
+ * @version 1.0
+ * @see MappedDiskMap
+ * @since 1.0
+ */
+public class MappedDiskMapTest {
+
+    private static final String NAME = "mapped";
+    private static final int UNITS = 2;
+    private static final int KEYS = 3000;
+
+    private static boolean failed;
+
+    public static void main(String[] args) throws Exception {
+        File dir = Files.createTempDirectory("tdb-mapped").toFile();
+        try {
+            TDConfig config = new TDConfig().setDBPath(dir.getPath()).setCompaction(0.5, 0, 1000);
+            String[][] latest = new String[UNITS][KEYS + 1];
+            slots(config, latest);
+            crash(config, latest);
+            compaction(config, latest);
+            interruptedCompaction(config, latest);
+        } finally {
+            delete(dir);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("mapped slot checks passed");
+    }
+
+    /**
+     * 多轮以不同长度覆盖写入后取回每个键最后写入的值，关闭并重新打开后同样取回
+     */
+    private static void slots(TDConfig config, String[][] latest) {
+        MappedDiskMap.MappedRange<Integer, String> range = new MappedDiskMap.MappedRange<>(NAME, config);
+        if (range.contains(0, 1) || null != range.get(0, 1, 1)) {
+            fail("found a key in an empty table");
+        }
+        write(range, latest, 0, 4, 1);
+        check(range, latest, "before close");
+        range.close();
+        range = new MappedDiskMap.MappedRange<>(NAME, config);
+        check(range, latest, "reopen");
+        range.close();
+    }
+
+    /**
+     * 未关闭即重新打开时，已返回的写入均可取回
+     */
+    private static void crash(TDConfig config, String[][] latest) {
+        MappedDiskMap.MappedRange<Integer, String> range = new MappedDiskMap.MappedRange<>(NAME, config);
+        write(range, latest, 4, 5, 1);
+        // 不关闭，直接以新的对象重新打开
+        MappedDiskMap.MappedRange<Integer, String> reopened = new MappedDiskMap.MappedRange<>(NAME, config);
+        check(reopened, latest, "crash");
+        reopened.close();
+        range.close();
+    }
+
+    /**
+     * 压缩后值堆文件总大小明显减小且每个unit只保留一代值堆文件，压缩后及重新打开后均取回每个键最后写入的值
+     */
+    private static void compaction(TDConfig config, String[][] latest) {
+        Housekeeper housekeeper = new Housekeeper("mapped-test", 1, 0);
+        MappedDiskMap.MappedRange<Integer, String> range = new MappedDiskMap.MappedRange<>(NAME, config);
+        // 打开的unit才会被压缩
+        check(range, latest, "before compaction");
+        long before = heapSize(config);
+        range.compact(housekeeper);
+        long after = heapSize(config);
+        check(range, latest, "after compaction");
+        if (after * 2 > before) {
+            fail("compaction did not reclaim space, " + before + " -> " + after);
+        }
+        checkGenerations(config, "after compaction");
+        write(range, latest, 5, 7, 1);
+        range.compact(housekeeper);
+        check(range, latest, "second compaction");
+        checkGenerations(config, "second compaction");
+        range.close();
+        range = new MappedDiskMap.MappedRange<>(NAME, config);
+        check(range, latest, "reopen after compaction");
+        range.close();
+        housekeeper.close();
+    }
+
+    /**
+     * 限速的压缩在迁移途中被关闭打断，期间的写入进入新一代值堆文件。
+     * 重新打开后两代值堆文件中的值均可取回，即使失效值占比未达到阈值，再次压缩也会完成迁移并只保留一代值堆文件
+     */
+    private static void interruptedCompaction(TDConfig config, String[][] latest) throws Exception {
+        Housekeeper slow = new Housekeeper("mapped-test-slow", 1, 64 * 1024);
+        MappedDiskMap.MappedRange<Integer, String> range = new MappedDiskMap.MappedRange<>(NAME, config);
+        write(range, latest, 7, 9, 1);
+        Thread compactor = new Thread(() -> range.compact(slow));
+        compactor.start();
+        Thread.sleep(300);
+        // 压缩已切换代，覆盖写入一半的键
+        write(range, latest, 9, 10, 2);
+        range.close();
+        compactor.join();
+        slow.close();
+        if (!heap(config, 0, 0).exists() || !heap(config, 0, 1).exists()) {
+            fail("compaction finished before it was interrupted, the split state was not exercised");
+        }
+        Housekeeper housekeeper = new Housekeeper("mapped-test", 1, 0);
+        // 失效值占比永远达不到的阈值，只有两代值堆文件同时存在才会触发压缩
+        TDConfig resume = new TDConfig().setDBPath(config.getDbPath()).setCompaction(2, 0, 1000);
+        MappedDiskMap.MappedRange<Integer, String> reopened = new MappedDiskMap.MappedRange<>(NAME, resume);
+        check(reopened, latest, "reopen after interrupted compaction");
+        reopened.compact(housekeeper);
+        check(reopened, latest, "resumed compaction");
+        checkGenerations(config, "resumed compaction");
+        reopened.close();
+        reopened = new MappedDiskMap.MappedRange<>(NAME, resume);
+        check(reopened, latest, "reopen after resumed compaction");
+        reopened.close();
+        housekeeper.close();
+    }
+
+    /**
+     * 以轮次 [from, to) 依次覆盖写入每隔<tt>step</tt>个的键，每轮值的长度不同
+     */
+    private static void write(MappedDiskMap.MappedRange<Integer, String> range, String[][] latest, int from, int to,
+                              int step) {
+        for (int round = from; round < to; round++) {
+            for (int unit = 0; unit < UNITS; unit++) {
+                for (int key = 1; key <= KEYS; key += step) {
+                    latest[unit][key] = unit + ":" + key + ":" + round + ":"
+                            + new String(new char[(key * 7 + round * 13) % 200]).replace('\0', 'x');
+                    range.put(unit, key, key, latest[unit][key]);
+                }
+            }
+        }
+    }
+
+    private static void check(MappedDiskMap.MappedRange<Integer, String> range, String[][] latest, String step) {
+        for (int unit = 0; unit < UNITS; unit++) {
+            for (int key = 1; key <= KEYS; key++) {
+                String value = range.get(unit, key, key);
+                if (!latest[unit][key].equals(value)) {
+                    fail(step + ": key " + unit + "/" + key + " expected " + latest[unit][key] + " but was " + value);
+                    return;
+                }
+            }
+        }
+        if (range.contains(UNITS, 1)) {
+            fail(step + ": found a unit that was never written");
+        }
+    }
+
+    private static void checkGenerations(TDConfig config, String step) {
+        for (int unit = 0; unit < UNITS; unit++) {
+            if (heap(config, unit, 0).exists() == heap(config, unit, 1).exists()) {
+                fail(step + ": unit " + unit + " should have exactly one heap generation");
+            }
+        }
+    }
+
+    private static File heap(TDConfig config, int unit, int generation) {
+        return new File(TDConfig.storageMappedHeapFilePath(config.getDbPath(), NAME, unit, generation));
+    }
+
+    private static long heapSize(TDConfig config) {
+        long size = 0;
+        for (int unit = 0; unit < UNITS; unit++) {
+            size += heap(config, unit, 0).length() + heap(config, unit, 1).length();
+        }
+        return size;
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<File> files = Files.walk(dir.toPath()).sorted(Comparator.reverseOrder()).map(Path::toFile)) {
+            files.forEach(File::delete);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println(message);
+        failed = true;
+    }
+
+}
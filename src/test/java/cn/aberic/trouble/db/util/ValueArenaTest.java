@@ -0,0 +1,191 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDBinaryCodec;
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * 堆外内存表的值检查。
+ *
+ * <p>对每一种允许存放于堆外的值类型，检查堆外内存表取回的值与存入的值类型及内容一致；
+ * 对不允许的值类型及非{@link TDBinaryCodec}编解码器，检查写入或创建时被拒绝。任一检查失败时以非0状态退出。
+ *
+ * @author agent on 2026/10/17 07:24
+ * @version 1.0
+ * @see ValueArena
+ * @since 1.0
+ */
+public class ValueArenaTest {
+
+    private static boolean failed;
+
+    public static void main(String[] args) {
+        roundTrip();
+        putContract();
+        sizeClasses();
+        reuse();
+        rejection();
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("value arena checks passed");
+    }
+
+    private static void roundTrip() {
+        Object[] values = {null, "", "value", "中文", new byte[0], new byte[]{1, -2, 3}, 0, Integer.MIN_VALUE,
+                1L, Long.MAX_VALUE, (short) -7, (byte) 9, true, false, 1.5f, Float.NaN, -2.25d, Double.MIN_VALUE,
+                'c', '中'};
+        HashMemoryMap<Integer, Object> map = new HashMemoryMap<>(
+                new TDConfig().setOffHeap(true).setCodec(new TDBinaryCodec()));
+        for (int i = 0; i < values.length; i++) {
+            map.put(i + 1, i, values[i]);
+        }
+        for (int i = 0; i < values.length; i++) {
+            check(values[i], map.get(i + 1, i), "round trip");
+            if (!map.containsKey(i + 1, i)) {
+                fail("missing key " + i);
+            }
+        }
+        if (map.containsKey(values.length + 1, values.length) || null != map.get(values.length + 1, values.length)) {
+            fail("found a key that was never written");
+        }
+        // 覆盖写入后同样原样取回
+        for (int i = 0; i < values.length; i++) {
+            map.put(i + 1, i, values[values.length - 1 - i]);
+        }
+        for (int i = 0; i < values.length; i++) {
+            check(values[values.length - 1 - i], map.get(i + 1, i), "overwrite");
+        }
+    }
+
+    /**
+     * 同一组写入在堆内与堆外内存表中的put返回值一致，包括hash冲突的key
+     */
+    private static void putContract() {
+        HashMemoryMap<String, Object> heap = new HashMemoryMap<>(new TDConfig());
+        HashMemoryMap<String, Object> offHeap = new HashMemoryMap<>(
+                new TDConfig().setOffHeap(true).setCodec(new TDBinaryCodec()));
+        Random random = new Random(9);
+        for (int i = 0; i < 20000; i++) {
+            // 每个hash对应4个key，覆盖写入与冲突写入交替发生
+            int hash = random.nextInt(500) + 1;
+            String key = hash + "-" + random.nextInt(4);
+            String value = "v" + i;
+            check(heap.put(hash, key, value), offHeap.put(hash, key, value), "put " + key);
+        }
+    }
+
+    /**
+     * 每个长度所属容量级别的容量不小于该长度，前一级别的容量小于该长度，且取整浪费不超过25%
+     */
+    private static void sizeClasses() {
+        for (int length = 0; length <= 1 << 22; length++) {
+            int sizeClass = ValueArena.sizeClass(length);
+            int capacity = ValueArena.classCapacity(sizeClass);
+            if (capacity < length || (sizeClass > 0 && ValueArena.classCapacity(sizeClass - 1) >= length)
+                    || (length > 16 && capacity > length + length / 4 + 1)) {
+                fail("length " + length + " has class " + sizeClass + " with capacity " + capacity);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 反复以不同长度覆盖写入时，直接内存在首轮后保持有界，且独占块被覆盖后释放
+     */
+    private static void reuse() {
+        int keys = 2000;
+        HashMemoryMap<Integer, Object> map = new HashMemoryMap<>(new TDConfig().setOffHeap(true)
+                .setCodec(new TDBinaryCodec()).setArenaSlabSize(64 * 1024));
+        Random random = new Random(17);
+        String[] latest = new String[keys];
+        long warm = 0;
+        for (int round = 0; round < 100; round++) {
+            for (int key = 0; key < keys; key++) {
+                // 偶尔写入超过单块大小的值
+                int length = random.nextInt(50) == 0 ? 70 * 1024 + random.nextInt(1024) : random.nextInt(2000);
+                latest[key] = round + ":" + new String(new char[length]).replace('\0', 'x');
+                map.put(key + 1, key, latest[key]);
+            }
+            if (round == 9) {
+                warm = map.offHeapCapacity();
+            }
+        }
+        for (int key = 0; key < keys; key++) {
+            check(latest[key], map.get(key + 1, key), "reuse");
+        }
+        long capacity = map.offHeapCapacity();
+        System.out.println("off-heap capacity after 10 rounds = " + warm + " | after 100 rounds = " + capacity
+                + " | garbage = " + map.offHeapGarbage());
+        if (capacity > warm * 2) {
+            fail("off-heap capacity keeps growing under overwrites");
+        }
+    }
+
+    private static void rejection() {
+        HashMemoryMap<Integer, Object> map = new HashMemoryMap<>(
+                new TDConfig().setOffHeap(true).setCodec(new TDBinaryCodec()));
+        Object[] values = {new int[]{1}, new ArrayList<>(), new HashMap<>(), new StringBuilder("s"), new Object()};
+        for (int i = 0; i < values.length; i++) {
+            try {
+                map.put(i + 1, i, values[i]);
+                fail("accepted " + values[i].getClass().getName());
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        try {
+            new HashMemoryMap<>(new TDConfig().setOffHeap(true));
+            fail("accepted the default codec");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    private static void check(Object expected, Object actual, String step) {
+        boolean same = expected instanceof byte[]
+                ? actual instanceof byte[] && Arrays.equals((byte[]) expected, (byte[]) actual)
+                : Objects.equals(expected, actual) && (null == expected || expected.getClass() == actual.getClass());
+        if (!same) {
+            fail(step + ": expected " + describe(expected) + " but was " + describe(actual));
+        }
+    }
+
+    private static String describe(Object value) {
+        return null == value ? "null" : value.getClass().getSimpleName() + " "
+                + (value instanceof byte[] ? Arrays.toString((byte[]) value) : value);
+    }
+
+    private static void fail(String message) {
+        System.out.println(message);
+        failed = true;
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Aberic Yang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cn.aberic.trouble.db.util;
+
+import cn.aberic.trouble.db.core.TDConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 组提交预写日志的检查。
+ *
+ * <p>检查多个写入方并发追加的记录在未关闭即重新打开（模拟进程崩溃）后全部重放，且同一写入方的记录保持追加顺序；
+ * 日志尾部的不完整记录被忽略，之后追加的记录仍可重放；清空后不再重放；关闭后拒绝追加。
+ * 并检查并发磁盘表在索引文件丢失后可由预写日志恢复所有已返回的写入。任一检查失败时以非0状态退出。
+ *
+ * @author agent on 2026/10/17 07:42
+ * @version 1.0
+ * @see WriteAheadLog
+ * @since 1.0
+ */
+public class WriteAheadLogTest {
+
+    private static final int WRITERS = 8;
+    private static final int KEYS_PER_WRITER = 300;
+
+    private static boolean failed;
+
+    public static void main(String[] args) throws Exception {
+        File dir = Files.createTempDirectory("tdb-wal").toFile();
+        try {
+            File file = new File(dir, "test.wal");
+            Map<Long, String> latest = groupCommit(file);
+            tornTail(file, latest);
+            checkpoint(file);
+            diskTableRecovery(dir);
+        } finally {
+            delete(dir);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("write ahead log checks passed");
+    }
+
+    /**
+     * 多个写入方并发追加，每个键先后写入两次，未关闭即重新打开后重放得到每个键第二次写入的值
+     */
+    private static Map<Long, String> groupCommit(File file) throws Exception {
+        WriteAheadLog wal = new WriteAheadLog("test", file);
+        Map<Long, String> latest = new HashMap<>();
+        Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                try {
+                    for (int round = 0; round < 2; round++) {
+                        for (int key = 1; key <= KEYS_PER_WRITER; key++) {
+                            wal.append(writer, key, value(writer, key, round).getBytes());
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    fail("append failed");
+                }
+            });
+            writers[w].start();
+            for (int key = 1; key <= KEYS_PER_WRITER; key++) {
+                latest.put(key(writer, key), value(writer, key, 1));
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        // 不关闭，直接以新的对象重新打开
+        check(replay(file), latest, "replay after crash");
+        wal.close();
+        try {
+            wal.append(0, 1, new byte[1]);
+            fail("closed log accepted an append");
+        } catch (IOException ignored) {
+        }
+        return latest;
+    }
+
+    /**
+     * 日志尾部的不完整记录被忽略，重新打开后追加的记录紧随最后一条有效记录，再次重放时可见
+     */
+    private static void tornTail(File file, Map<Long, String> latest) throws IOException {
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 9, 1},
+                StandardOpenOption.APPEND);
+        WriteAheadLog wal = new WriteAheadLog("test", file);
+        Map<Long, String> replayed = new HashMap<>();
+        wal.replay((unit, storeHash, value) -> replayed.put(key(unit, storeHash), new String(value)));
+        check(replayed, latest, "replay with torn tail");
+        wal.append(0, 1, "after torn tail".getBytes());
+        latest.put(key(0, 1), "after torn tail");
+        wal.close();
+        check(replay(file), latest, "append after torn tail");
+    }
+
+    /**
+     * 清空后重新打开不再重放任何记录
+     */
+    private static void checkpoint(File file) throws IOException {
+        WriteAheadLog wal = new WriteAheadLog("test", file);
+        wal.checkpoint();
+        wal.close();
+        Map<Long, String> replayed = replay(file);
+        if (!replayed.isEmpty() || file.length() != 0) {
+            fail("checkpoint left " + replayed.size() + " records in " + file.length() + " bytes");
+        }
+    }
+
+    /**
+     * 并发磁盘表并发写入后未关闭，且索引文件全部丢失，重新打开时由预写日志恢复所有值，恢复后清空预写日志
+     */
+    private static void diskTableRecovery(File dir) throws Exception {
+        TDConfig config = new TDConfig().setDBPath(dir.getPath()).setCacheMaxWeight(0);
+        Housekeeper housekeeper = new Housekeeper("wal-test", 1, 0);
+        HashDiskMap<Integer, String> table = new HashDiskMap<>("table", config, true, housekeeper);
+        int keys = WRITERS * KEYS_PER_WRITER;
+        Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                for (int key = writer; key < keys; key += WRITERS) {
+                    table.put(key + 1, key, "value-" + key);
+                }
+            });
+            writers[w].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        // 不关闭，并删除所有索引文件，模拟磁盘映射的写入尚未落盘时进程崩溃
+        delete(new File(TDConfig.storageIndexDirPath(config.getDbPath(), "table")));
+        HashDiskMap<Integer, String> reopened = new HashDiskMap<>("table", config, true, housekeeper);
+        for (int key = 0; key < keys; key++) {
+            String value = reopened.get(key + 1, key);
+            if (!("value-" + key).equals(value)) {
+                fail("disk table recovery: key " + key + " expected value-" + key + " but was " + value);
+                break;
+            }
+        }
+        File wal = new File(TDConfig.storageWalFilePath(config.getDbPath(), "table"));
+        if (wal.length() != 0) {
+            fail("disk table recovery did not checkpoint the log, " + wal.length() + " bytes left");
+        }
+        reopened.close();
+        housekeeper.close();
+    }
+
+    private static Map<Long, String> replay(File file) throws IOException {
+        Map<Long, String> replayed = new HashMap<>();
+        WriteAheadLog wal = new WriteAheadLog("replay", file);
+        wal.replay((unit, storeHash, value) -> replayed.put(key(unit, storeHash), new String(value)));
+        wal.close();
+        return replayed;
+    }
+
+    private static void check(Map<Long, String> replayed, Map<Long, String> latest, String step) {
+        if (!replayed.equals(latest)) {
+            int wrong = 0;
+            for (Map.Entry<Long, String> entry : latest.entrySet()) {
+                if (!entry.getValue().equals(replayed.get(entry.getKey()))) {
+                    wrong++;
+                }
+            }
+            fail(step + ": " + wrong + " of " + latest.size() + " keys wrong, replayed " + replayed.size() + " keys");
+        }
+    }
+
+    private static long key(int unit, int storeHash) {
+        return ((long) unit << 32) | (storeHash & 0xFFFFFFFFL);
+    }
+
+    private static String value(int writer, int key, int round) {
+        return writer + ":" + key + ":" + round;
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<File> files = Files.walk(dir.toPath()).sorted(Comparator.reverseOrder()).map(Path::toFile)) {
+            files.forEach(File::delete);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println(message);
+        failed = true;
+    }
+
+}